@@ -0,0 +1,121 @@
+package com.justas.squares_backend.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.justas.squares_backend.dto.PointInputDTO;
+import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.SquareKey;
+import com.justas.squares_backend.repository.PointRepository;
+
+/**
+ * Synthetic point sets shared by the benchmarks. All layouts are seeded, so
+ * every run and every algorithm variant sees exactly the same points.
+ */
+public class BenchmarkData {
+
+    public enum Layout {
+        /**
+         * Every lattice point of a strip eight columns wide.
+         * A full n-point square grid holds about n^2 / 12 squares, which no
+         * variant could return at 100k points, so the strip keeps the result
+         * linear in n while staying as dense as possible.
+         */
+        GRID,
+        /** Distinct points spread uniformly over a 4n x 4n area, almost no squares. */
+        RANDOM,
+        /**
+         * Two parallel lines further apart than they are long. Half of all
+         * pairs pass the parity check, yet no corner ever lands on a line, so
+         * every lookup misses and no square is found.
+         */
+        COLLINEAR
+    }
+
+    static final int GRID_WIDTH = 8;
+
+    private static final long SEED = 20240101L;
+
+    public static int[][] coordinates(Layout layout, int size) {
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+
+        switch (layout) {
+            case GRID -> {
+                for (int i = 0; i < size; i++) {
+                    xs[i] = i % GRID_WIDTH;
+                    ys[i] = i / GRID_WIDTH;
+                }
+            }
+            case RANDOM -> {
+                Random random = new Random(SEED);
+                LongHashSet seen = new LongHashSet(size);
+                int range = size * 4;
+                int i = 0;
+                while (i < size) {
+                    int x = random.nextInt(range);
+                    int y = random.nextInt(range);
+                    if (seen.add(SquareKey.pack(x, y))) {
+                        xs[i] = x;
+                        ys[i] = y;
+                        i++;
+                    }
+                }
+            }
+            case COLLINEAR -> {
+                int half = (size + 1) / 2;
+                for (int i = 0; i < size; i++) {
+                    xs[i] = i % half;
+                    ys[i] = i < half ? 0 : size;
+                }
+            }
+        }
+
+        return new int[][] { xs, ys };
+    }
+
+    public static List<Point> points(Layout layout, int size) {
+        int[][] coordinates = coordinates(layout, size);
+        List<Point> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new Point(coordinates[0][i], coordinates[1][i]));
+        }
+        return points;
+    }
+
+    public static List<PointInputDTO> inputs(Layout layout, int size) {
+        int[][] coordinates = coordinates(layout, size);
+        List<PointInputDTO> inputs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            inputs.add(new PointInputDTO(coordinates[0][i], coordinates[1][i]));
+        }
+        return inputs;
+    }
+
+    /**
+     * Read-only repository serving {@code findByDataset(..)} and
+     * {@code existsByDataset(..)} from memory, so square benchmarks measure
+     * detection rather than JPA. Default methods keep their behaviour.
+     */
+    public static PointRepository repository(List<Point> points) {
+        return (PointRepository) Proxy.newProxyInstance(
+                PointRepository.class.getClassLoader(),
+                new Class<?>[] { PointRepository.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByDataset")) {
+                        return points;
+                    }
+                    if (method.getName().equals("existsByDataset")) {
+                        return !points.isEmpty();
+                    }
+                    if (method.isDefault()) {
+                        return InvocationHandler.invokeDefault(proxy, method, args);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,168 @@
+package com.justas.squares_backend.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.justas.squares_backend.helpers.LongList;
+
+/**
+ * Mixed-traffic load test against a running instance. "Heavy" clients keep
+ * requesting square detection over a few thousand random points, while
+ * "light" clients add single points. The latency distribution of the light
+ * requests shows whether cheap calls queue behind expensive ones.
+ * <p>
+ * Run it once against the default configuration and once against
+ * {@code --spring.profiles.active=virtual}, then compare the light-request
+ * percentiles. Arguments: base URL, duration in seconds, heavy clients,
+ * light clients. Requests of the first tenth of the run are warm-up and are
+ * not reported.
+ */
+public class MixedTrafficLoadTest {
+
+    private static final int HEAVY_POINTS = 3000;
+    private static final String HEAVY_DATASET = "loadtest-heavy";
+    private static final String LIGHT_DATASET = "loadtest-light";
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+        int heavyClients = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        int lightClients = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        seed(client, url);
+
+        HttpRequest heavy = HttpRequest.newBuilder(
+                        URI.create(url + "/datasets/" + HEAVY_DATASET + "/squares/region?minX=0"))
+                .timeout(Duration.ofMinutes(5))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(seconds) / 10;
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        // Distinct per run, so light requests insert new points instead of hitting duplicates
+        int run = (int) (System.currentTimeMillis() / 1000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(heavyClients + lightClients);
+        List<Future<Samples>> heavyResults = new ArrayList<>();
+        List<Future<Samples>> lightResults = new ArrayList<>();
+
+        for (int c = 0; c < heavyClients; c++) {
+            heavyResults.add(pool.submit(() -> drive(client, i -> heavy, measureFrom, end)));
+        }
+        for (int c = 0; c < lightClients; c++) {
+            int x = (run % 10_000_000) * 64 + c;
+            lightResults.add(pool.submit(() -> drive(client, i -> HttpRequest.newBuilder(
+                            URI.create(url + "/datasets/" + LIGHT_DATASET + "/points/single"))
+                    .timeout(Duration.ofMinutes(5))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"x\":" + x + ",\"y\":" + i + "}"))
+                    .build(), measureFrom, end)));
+        }
+
+        pool.shutdown();
+        report("heavy  GET  /squares/region  ", merge(heavyResults), seconds);
+        report("light  POST /points/single   ", merge(lightResults), seconds);
+    }
+
+    private interface RequestFactory {
+        HttpRequest create(int sequence);
+    }
+
+    private static class Samples {
+        final LongList latencies = new LongList();
+        long errors;
+    }
+
+    private static Samples drive(HttpClient client, RequestFactory requests, long measureFrom, long end)
+            throws InterruptedException {
+        Samples samples = new Samples();
+        int sequence = 0;
+        while (System.nanoTime() < end) {
+            HttpRequest request = requests.create(sequence++);
+            long sent = System.nanoTime();
+            boolean ok;
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                // 409 is a duplicate point, still a served request
+                ok = status < 300 || status == 409;
+            } catch (IOException ex) {
+                ok = false;
+            }
+            if (sent >= measureFrom) {
+                if (ok) {
+                    samples.latencies.add(System.nanoTime() - sent);
+                } else {
+                    samples.errors++;
+                }
+            }
+        }
+        return samples;
+    }
+
+    private static void seed(HttpClient client, String url) throws Exception {
+        int[][] coordinates = BenchmarkData.coordinates(BenchmarkData.Layout.RANDOM, HEAVY_POINTS);
+        StringBuilder csv = new StringBuilder("x,y\n");
+        for (int i = 0; i < HEAVY_POINTS; i++) {
+            csv.append(coordinates[0][i]).append(',').append(coordinates[1][i]).append('\n');
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create(url + "/datasets/" + HEAVY_DATASET + "/points/stream"))
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private static Samples merge(List<Future<Samples>> results) throws Exception {
+        Samples merged = new Samples();
+        for (Future<Samples> result : results) {
+            Samples samples = result.get();
+            merged.latencies.addAll(samples.latencies);
+            merged.errors += samples.errors;
+        }
+        return merged;
+    }
+
+    private static void report(String name, Samples samples, long seconds) {
+        long[] latencies = samples.latencies.toArray();
+        Arrays.sort(latencies);
+
+        System.out.printf("%s requests=%d errors=%d throughput=%.1f/s p50=%s p90=%s p99=%s p99.9=%s max=%s%n",
+                name,
+                latencies.length,
+                samples.errors,
+                latencies.length / (seconds * 0.9),
+                millis(latencies, 0.50),
+                millis(latencies, 0.90),
+                millis(latencies, 0.99),
+                millis(latencies, 0.999),
+                millis(latencies, 1.0));
+    }
+
+    private static String millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        int index = Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1);
+        return String.format("%.1fms", sorted[index] / 1_000_000.0);
+    }
+}
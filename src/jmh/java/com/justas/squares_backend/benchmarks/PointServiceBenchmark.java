@@ -0,0 +1,83 @@
+package com.justas.squares_backend.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.justas.squares_backend.SquaresBackendApplication;
+import com.justas.squares_backend.dto.PointInputDTO;
+import com.justas.squares_backend.dto.PointOutputDTO;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.services.PointService;
+
+/**
+ * Import throughput of {@link PointService#addPoints(String, List)} against the real
+ * JPA repository and in-memory H2 database. The service is the application's
+ * bean, so transactions, the after-commit index update and the result cache
+ * are measured as in production. Each operation starts from an empty table
+ * and an empty square index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+public class PointServiceBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    private int size;
+
+    @Param({ "GRID", "RANDOM", "COLLINEAR" })
+    private BenchmarkData.Layout layout;
+
+    // At least one bound, as deleting by region requires
+    private static final Region EVERYTHING = new Region(Integer.MIN_VALUE, null, null, null);
+
+    private ConfigurableApplicationContext context;
+    private List<PointInputDTO> inputs;
+    private PointService pointService;
+
+    @Setup
+    public void setup() {
+        SpringApplication application = new SpringApplication(SquaresBackendApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--logging.level.root=WARN");
+
+        pointService = context.getBean(PointService.class);
+        inputs = BenchmarkData.inputs(layout, size);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetDatabase() {
+        // Through the service, so the square index is emptied along with the table
+        pointService.deletePointsInRegion(Datasets.DEFAULT, EVERYTHING);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PointOutputDTO> addPoints() {
+        return pointService.addPoints(Datasets.DEFAULT, inputs);
+    }
+}
@@ -0,0 +1,151 @@
+package com.justas.squares_backend.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.justas.squares_backend.detection.AxisKernel;
+import com.justas.squares_backend.detection.GridKernel;
+import com.justas.squares_backend.detection.SideKernel;
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.detection.SquareKernel;
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.repository.PointRepository;
+import com.justas.squares_backend.services.SquareIndex;
+import com.justas.squares_backend.services.SquareIndexRegistry;
+import com.justas.squares_backend.services.SquareResultCache;
+import com.justas.squares_backend.services.SquareService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Square detection throughput. The "cold" benchmarks build a fresh
+ * {@link SquareIndex} per operation, i.e. a full scan of every pair; the
+ * "indexed" ones read from an index that is already loaded with the result
+ * cache disabled, and the "cached" one reads through the result cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+public class SquareServiceBenchmark {
+
+    private static final SquareFilter AXIS_ALIGNED = new SquareFilter(true, null, null);
+    private static final SquareFilter SMALL_SIDES = new SquareFilter(null, null, 10);
+
+    @Param({ "1000", "10000", "100000" })
+    private int size;
+
+    @Param({ "GRID", "RANDOM", "COLLINEAR" })
+    private BenchmarkData.Layout layout;
+
+    private int[] xs;
+    private int[] ys;
+    private PointRepository repository;
+    private SquareDetector detector;
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private SquareService indexed;
+    private SquareService cached;
+
+    @Setup
+    public void setup() {
+        int[][] coordinates = BenchmarkData.coordinates(layout, size);
+        xs = coordinates[0];
+        ys = coordinates[1];
+
+        List<Point> points = BenchmarkData.points(layout, size);
+        repository = BenchmarkData.repository(points);
+        detector = new SquareDetector(0, 2000);
+
+        indexed = coldService();
+        indexed.countSquares(Datasets.DEFAULT);
+
+        SquareIndexRegistry indexes = new SquareIndexRegistry(repository, detector);
+        cached = new SquareService(indexes, new SquareResultCache(Long.MAX_VALUE), repository, detector, registry);
+        cached.findSquares(Datasets.DEFAULT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        detector.shutdown();
+    }
+
+    @Benchmark
+    public List<SquareDTO> findSquaresCold() {
+        return coldService().findSquares(Datasets.DEFAULT);
+    }
+
+    @Benchmark
+    public int countSquaresCold() {
+        return coldService().countSquares(Datasets.DEFAULT);
+    }
+
+    @Benchmark
+    public List<SquareDTO> findSquaresIndexed() {
+        return indexed.findSquares(Datasets.DEFAULT);
+    }
+
+    @Benchmark
+    public List<SquareDTO> findSquaresCached() {
+        return cached.findSquares(Datasets.DEFAULT);
+    }
+
+    @Benchmark
+    public int countSquaresIndexed() {
+        return indexed.countSquares(Datasets.DEFAULT);
+    }
+
+    @Benchmark
+    public LongList kernelSequential() {
+        return new SquareKernel(xs, ys).detect();
+    }
+
+    @Benchmark
+    public LongList kernelGrid() {
+        return new GridKernel(xs, ys).detect();
+    }
+
+    @Benchmark
+    public LongList kernelSide() {
+        return new SideKernel(xs, ys).detect();
+    }
+
+    @Benchmark
+    public LongList kernelAxisAligned() {
+        return new AxisKernel(xs, ys, AXIS_ALIGNED).detect();
+    }
+
+    @Benchmark
+    public LongList kernelMaxSide() {
+        return new SideKernel(xs, ys, SMALL_SIDES).detect();
+    }
+
+    @Benchmark
+    public LongList kernelParallel() {
+        return detector.detect(xs, ys);
+    }
+
+    private SquareService coldService() {
+        return new SquareService(
+                new SquareIndexRegistry(repository, detector), new SquareResultCache(0), repository, detector, registry);
+    }
+}
@@ -0,0 +1,125 @@
+package com.justas.squares_backend.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justas.squares_backend.dto.PointInputDTO;
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.helpers.BinaryCodec;
+import com.justas.squares_backend.helpers.SquareKey;
+import com.justas.squares_backend.mappers.SquareMapper;
+
+/**
+ * Encoding cost of the JSON and {@link BinaryCodec} wire formats: writing the
+ * square list of {@code GET /squares} and reading the point list of
+ * {@code POST /points}. The JSON square benchmark starts from the DTO list, as
+ * the result cache would hand it out; the binary one from the packed keys.
+ * Encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<PointInputDTO>> POINT_LIST = new TypeReference<>() {};
+
+    @Param({ "10000", "1000000" })
+    private int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private long[] keys;
+    private List<SquareDTO> squares;
+    private byte[] jsonPoints;
+    private byte[] binaryPoints;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        keys = new long[size * 2];
+        squares = new ArrayList<>(size);
+        List<PointInputDTO> points = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            int x = random.nextInt(20_000) - 10_000;
+            int y = random.nextInt(20_000) - 10_000;
+            keys[2 * i] = SquareKey.pack(x, y);
+            keys[2 * i + 1] = SquareKey.pack(x + random.nextInt(50), y + 1 + random.nextInt(50));
+            squares.add(SquareMapper.toDTO(new SquareKey(keys[2 * i], keys[2 * i + 1])));
+            points.add(new PointInputDTO(x, y));
+        }
+
+        jsonPoints = objectMapper.writeValueAsBytes(points);
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryCodec.writePoints(points, binary);
+        binaryPoints = binary.toByteArray();
+
+        CountingOutputStream jsonSquares = new CountingOutputStream();
+        objectMapper.writeValue(jsonSquares, squares);
+        System.out.printf("%n%d squares: JSON %d bytes, binary %d bytes; %d points: JSON %d bytes, binary %d bytes%n",
+                size, jsonSquares.count, (long) size * BinaryCodec.SQUARE_BYTES,
+                size, jsonPoints.length, binaryPoints.length);
+    }
+
+    @Benchmark
+    public long writeSquaresJson() throws IOException {
+        CountingOutputStream output = new CountingOutputStream();
+        objectMapper.writeValue(output, squares);
+        return output.count;
+    }
+
+    @Benchmark
+    public long writeSquaresBinary() throws IOException {
+        CountingOutputStream output = new CountingOutputStream();
+        BinaryCodec.writeSquares(keys, output);
+        return output.count;
+    }
+
+    @Benchmark
+    public List<PointInputDTO> readPointsJson() throws IOException {
+        return objectMapper.readValue(jsonPoints, POINT_LIST);
+    }
+
+    @Benchmark
+    public List<PointInputDTO> readPointsBinary() throws IOException {
+        return BinaryCodec.readPoints(new ByteArrayInputStream(binaryPoints));
+    }
+
+    // Stands in for the response stream, so only encoding is measured
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
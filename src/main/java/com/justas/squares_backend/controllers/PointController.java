@@ -1,17 +1,37 @@
 package com.justas.squares_backend.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justas.squares_backend.dto.DeleteSummaryDTO;
+import com.justas.squares_backend.dto.ImportSummaryDTO;
 import com.justas.squares_backend.dto.PointInputDTO;
 import com.justas.squares_backend.dto.PointOutputDTO;
+import com.justas.squares_backend.helpers.BinaryCodec;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.NdjsonWriter;
+import com.justas.squares_backend.helpers.PointStreamReader;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.services.DatasetVersions;
+import com.justas.squares_backend.services.PointImportService;
 import com.justas.squares_backend.services.PointService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -22,17 +42,29 @@ import jakarta.validation.Valid;
 
 @Tag(
     name = "Points",
-    description = "Endpoints for managing points in the system"
+    description = "Endpoints for managing points in the system. Every endpoint is also available "
+            + "under /datasets/{dataset}/points for a named point set; /points works on the default set"
 )
 
 @RestController
-@RequestMapping("/points")
+@RequestMapping({ "/points", "/datasets/{dataset}/points" })
 public class PointController {
 
     private final PointService service;
+    private final PointImportService importService;
+    private final DatasetVersions versions;
+    private final ObjectMapper objectMapper;
 
-    public PointController(PointService service) {
+    public PointController(
+            PointService service,
+            PointImportService importService,
+            DatasetVersions versions,
+            ObjectMapper objectMapper
+    ) {
         this.service = service;
+        this.importService = importService;
+        this.versions = versions;
+        this.objectMapper = objectMapper;
     }
 
     
@@ -42,8 +74,11 @@ public class PointController {
     )
     @ApiResponse(responseCode = "201", description = "Point created successfully")
     @PostMapping("/single")
-    public ResponseEntity<PointOutputDTO> addPoint(@Valid @RequestBody PointInputDTO input) {
-        PointOutputDTO saved = service.addPoint(input);
+    public ResponseEntity<PointOutputDTO> addPoint(
+            @PathVariable(required = false) String dataset,
+            @Valid @RequestBody PointInputDTO input
+    ) {
+        PointOutputDTO saved = service.addPoint(Datasets.resolve(dataset), input);
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
@@ -55,12 +90,45 @@ public class PointController {
     @ApiResponse(responseCode = "204", description = "Point deleted successfully")
     @ApiResponse(responseCode = "404", description = "Point not found")
     @DeleteMapping("/single")
-    public ResponseEntity<Void> deletePoint(@Valid @RequestBody PointInputDTO input) {
-        service.deletePointByCoordinates(input);
+    public ResponseEntity<Void> deletePoint(
+            @PathVariable(required = false) String dataset,
+            @Valid @RequestBody PointInputDTO input
+    ) {
+        service.deletePointByCoordinates(Datasets.resolve(dataset), input);
         return ResponseEntity.noContent().build();
     }
 
     
+    @Operation(
+        summary = "Delete multiple points",
+        description = "Deletes the listed points in one transaction; points that do not exist are ignored"
+    )
+    @ApiResponse(responseCode = "200", description = "Points deleted, number of deleted points returned")
+    @DeleteMapping
+    public DeleteSummaryDTO deletePoints(
+            @PathVariable(required = false) String dataset,
+            @RequestBody List<@Valid PointInputDTO> points
+    ) {
+        return service.deletePoints(Datasets.resolve(dataset), points);
+    }
+
+    
+    @Operation(
+        summary = "Delete the points in a bounding box",
+        description = "Deletes every point inside minX, maxX, minY and maxY with one statement; "
+                + "at least one bound is required"
+    )
+    @ApiResponse(responseCode = "200", description = "Points deleted, number of deleted points returned")
+    @ApiResponse(responseCode = "400", description = "No bound given or min bound above max bound")
+    @DeleteMapping("/region")
+    public DeleteSummaryDTO deletePointsInRegion(
+            @PathVariable(required = false) String dataset,
+            @ParameterObject Region region
+    ) {
+        return service.deletePointsInRegion(Datasets.resolve(dataset), region);
+    }
+
+    
     @Operation(
         summary = "Import multiple points",
         description = "Adds a list of points in a single request"
@@ -68,20 +136,106 @@ public class PointController {
     @ApiResponse(responseCode = "201", description = "Points imported successfully")
     @PostMapping
     public ResponseEntity<List<PointOutputDTO>> importPoints(
+            @PathVariable(required = false) String dataset,
             @RequestBody List<@Valid PointInputDTO> points
     ) {
-        List<PointOutputDTO> saved = service.addPoints(points);
+        List<PointOutputDTO> saved = service.addPoints(Datasets.resolve(dataset), points);
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
     
     @Operation(
-        summary = "Get all points",
-        description = "Returns a list of all stored points"
+        summary = "Import multiple points in binary",
+        description = "Adds all points or none, like the JSON list, sent with Content-Type: " + BinaryCodec.MEDIA_TYPE
+                + " as little-endian int32 (x, y) pairs, 8 bytes per point. Returns an import summary "
+                + "instead of the stored points"
+    )
+    @ApiResponse(responseCode = "201", description = "Points imported successfully, summary returned")
+    @PostMapping(consumes = BinaryCodec.MEDIA_TYPE)
+    public ResponseEntity<ImportSummaryDTO> importBinaryPoints(
+            @PathVariable(required = false) String dataset,
+            InputStream body
+    ) throws IOException {
+        ImportSummaryDTO summary = importService.importBinary(Datasets.resolve(dataset), body);
+        return ResponseEntity.status(HttpStatus.CREATED).body(summary);
+    }
+
+    
+    @Operation(
+        summary = "Import new points",
+        description = "Adds the points of the list that do not exist yet in chunks committed one by one; "
+                + "existing and repeated points are skipped and reported as rejected, so a partially "
+                + "applied batch can be sent again"
+    )
+    @ApiResponse(responseCode = "201", description = "Points processed, summary returned")
+    @PostMapping("/upsert")
+    public ResponseEntity<ImportSummaryDTO> importNewPoints(
+            @PathVariable(required = false) String dataset,
+            @RequestBody List<@Valid PointInputDTO> points
+    ) {
+        ImportSummaryDTO summary = importService.importNew(Datasets.resolve(dataset), points);
+        return ResponseEntity.status(HttpStatus.CREATED).body(summary);
+    }
+
+    
+    @Operation(
+        summary = "Stream-import points",
+        description = "Imports NDJSON or CSV (x,y) points incrementally in fixed-size chunks; "
+                + "malformed and already existing points are skipped and reported as rejected"
+    )
+    @ApiResponse(responseCode = "201", description = "Stream processed, summary returned")
+    @PostMapping(value = "/stream", consumes = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    public ResponseEntity<ImportSummaryDTO> importPointStream(
+            @PathVariable(required = false) String dataset,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) throws IOException {
+        ImportSummaryDTO summary = importService.importStream(
+                Datasets.resolve(dataset), body, PointStreamReader.Format.fromContentType(contentType));
+        return ResponseEntity.status(HttpStatus.CREATED).body(summary);
+    }
+
+    
+    @Operation(
+        summary = "Get points",
+        description = "Returns all stored points, or one page of them when page, size or afterId is given. "
+                + "minX, maxX, minY and maxY restrict the result to a bounding box. "
+                + "Answers 304 when If-None-Match holds the current ETag"
     )
     @GetMapping
-    public List<PointOutputDTO> getAllPoints() {
-        return service.getAllPoints();
+    public List<PointOutputDTO> getAllPoints(
+            @PathVariable(required = false) String dataset,
+            @ParameterObject Region region,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Long afterId,
+            WebRequest request
+    ) {
+        String name = Datasets.resolve(dataset);
+        if (request.checkNotModified(versions.etag(name, "json"))) {
+            return null;
+        }
+        if (region.isUnbounded() && page == null && size == null && afterId == null) {
+            return service.getAllPoints(name);
+        }
+        return service.findPoints(name, region, page, size, afterId);
+    }
+
+    
+    @Operation(
+        summary = "Stream all points",
+        description = "Writes the points as newline-delimited JSON while the database cursor yields them"
+    )
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPoints(@PathVariable(required = false) String dataset) {
+        String name = Datasets.resolve(dataset);
+        StreamingResponseBody body = output -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, output);
+            service.streamPoints(name, writer::write);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 }
 
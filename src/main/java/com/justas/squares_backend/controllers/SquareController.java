@@ -2,47 +2,183 @@ package com.justas.squares_backend.controllers;
 
 import java.util.List;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justas.squares_backend.dto.CacheStatsDTO;
+import com.justas.squares_backend.dto.SquareChangesDTO;
 import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.helpers.BinaryCodec;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.NdjsonWriter;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.services.DatasetVersions;
 import com.justas.squares_backend.services.SquareService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
-@Tag(name = "Squares", description = "Endpoints for square detection")
+@Tag(
+		name = "Squares",
+		description = "Endpoints for square detection. Every endpoint is also available under "
+				+ "/datasets/{dataset}/squares for a named point set; /squares works on the default set"
+)
 @RestController
-@RequestMapping("/squares")
+@RequestMapping({ "/squares", "/datasets/{dataset}/squares" })
 public class SquareController {
 	
 	private final SquareService squareService;
+	private final DatasetVersions versions;
+	private final ObjectMapper objectMapper;
 	
-	public SquareController(SquareService squareService) {
+	public SquareController(SquareService squareService, DatasetVersions versions, ObjectMapper objectMapper) {
 		this.squareService = squareService;
+		this.versions = versions;
+		this.objectMapper = objectMapper;
 	}
 	
 	
 	@Operation(
 	        summary = "Get all detected squares",
-	        description = "Returns a list of all squares found in the dataset"
+	        description = "Returns a list of all squares found in the dataset, optionally only the "
+	                + "axis-aligned ones (axisAligned) and/or those with a side length between minSide and maxSide. "
+	                + "Answers 304 when If-None-Match holds the current ETag"
 	    )
 	@GetMapping
-	public ResponseEntity<List<SquareDTO>> getSquares(){
-		List<SquareDTO> squares = squareService.findSquares();
-		return ResponseEntity.ok(squares);
+	public ResponseEntity<List<SquareDTO>> getSquares(
+			@PathVariable(required = false) String dataset,
+			@ParameterObject SquareFilter filter,
+			WebRequest request
+	){
+		String name = Datasets.resolve(dataset);
+		if (request.checkNotModified(versions.etag(name, "json"))) {
+			return null;
+		}
+		List<SquareDTO> squares = squareService.findSquares(name, filter);
+		return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(squares);
+	}
+	
+	
+	@Operation(
+	        summary = "Get all detected squares in binary",
+	        description = "Same squares as the JSON list, selected with Accept: " + BinaryCodec.MEDIA_TYPE
+	                + ". Each square is its four corners as little-endian int32 (x, y) pairs, 32 bytes per square"
+	    )
+	@GetMapping(produces = BinaryCodec.MEDIA_TYPE)
+	public ResponseEntity<StreamingResponseBody> getSquaresBinary(
+			@PathVariable(required = false) String dataset,
+			@ParameterObject SquareFilter filter,
+			WebRequest request
+	) {
+		String name = Datasets.resolve(dataset);
+		if (request.checkNotModified(versions.etag(name, "int32"))) {
+			return null;
+		}
+		long[] keys = squareService.squareKeys(name, filter);
+		StreamingResponseBody body = output -> BinaryCodec.writeSquares(keys, output);
+		return ResponseEntity.ok()
+				.varyBy(HttpHeaders.ACCEPT)
+				.contentType(MediaType.parseMediaType(BinaryCodec.MEDIA_TYPE))
+				.body(body);
+	}
+	
+	
+	@Operation(
+	        summary = "Get squares within a region",
+	        description = "Returns the squares whose four corners lie inside the bounding box "
+	                + "given by minX, maxX, minY and maxY; only the points in the box are considered. "
+	                + "Accepts the same square filters as the list of all squares"
+	    )
+	@GetMapping("/region")
+	public ResponseEntity<List<SquareDTO>> getSquaresInRegion(
+			@PathVariable(required = false) String dataset,
+			@ParameterObject Region region,
+			@ParameterObject SquareFilter filter,
+			WebRequest request
+	) {
+		String name = Datasets.resolve(dataset);
+		if (request.checkNotModified(versions.etag(name, "json"))) {
+			return null;
+		}
+		return ResponseEntity.ok(squareService.findSquaresInRegion(name, region, filter));
+	}
+	
+	
+	@Operation(
+	        summary = "Stream all detected squares",
+	        description = "Writes the squares as newline-delimited JSON while they are produced, "
+	                + "without building the whole list first. Accepts the same square filters as the list of all squares"
+	    )
+	@GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamSquares(
+			@PathVariable(required = false) String dataset,
+			@ParameterObject SquareFilter filter
+	) {
+		String name = Datasets.resolve(dataset);
+		StreamingResponseBody body = output -> {
+			NdjsonWriter writer = new NdjsonWriter(objectMapper, output);
+			squareService.streamSquares(name, filter, writer::write);
+		};
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.body(body);
+	}
+	
+	
+	@Operation(
+	        summary = "Get square cache statistics",
+	        description = "Returns hit, miss and eviction counts and the estimated size of the square "
+	                + "result cache, which is shared by all datasets"
+	    )
+	@GetMapping("/cache")
+	public CacheStatsDTO getCacheStats() {
+		return squareService.cacheStats();
+	}
+	
+	
+	@Operation(
+	        summary = "Get square changes",
+	        description = "Returns the squares added and removed since dataset version 'since', taken from the "
+	                + "version field of an earlier response, together with the current version. Without 'since', "
+	                + "or once that version is older than the retained change history, answers reset=true with "
+	                + "every current square as added. Square filters apply to the changes"
+	    )
+	@GetMapping("/changes")
+	public SquareChangesDTO getSquareChanges(
+			@PathVariable(required = false) String dataset,
+			@RequestParam(required = false) Long since,
+			@ParameterObject SquareFilter filter
+	) {
+		return squareService.findChanges(Datasets.resolve(dataset), since, filter);
 	}
 	
 	
 	@Operation(
 	        summary = "Get square count",
-	        description = "Returns the total number of detected squares"
+	        description = "Returns the number of detected squares, counting only those passing the square filters if given"
 	    )
 	@GetMapping("/count")
-	public int getSquareCount() {
-	    return squareService.countSquares();
+	public ResponseEntity<Integer> getSquareCount(
+			@PathVariable(required = false) String dataset,
+			@ParameterObject SquareFilter filter,
+			WebRequest request
+	) {
+		String name = Datasets.resolve(dataset);
+		if (request.checkNotModified(versions.etag(name, "json"))) {
+			return null;
+		}
+	    return ResponseEntity.ok(squareService.countSquares(name, filter));
 	}
 
 
@@ -0,0 +1,97 @@
+package com.justas.squares_backend.controllers;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springdoc.core.annotations.ParameterObject;
+
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.dto.SquareJobDTO;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.services.SquareJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Tag(
+	    name = "Square jobs",
+	    description = "Asynchronous square detection for large datasets. Also available under "
+	            + "/datasets/{dataset}/squares/jobs for a named point set"
+	)
+@RestController
+@RequestMapping({ "/squares/jobs", "/datasets/{dataset}/squares/jobs" })
+public class SquareJobController {
+
+	private final SquareJobService jobService;
+
+	public SquareJobController(SquareJobService jobService) {
+		this.jobService = jobService;
+	}
+
+
+	@Operation(
+	        summary = "Start a square detection job",
+	        description = "Queues a full detection scan of the dataset, optionally limited to the bounding box "
+	                + "given by minX, maxX, minY and maxY and to the squares passing axisAligned, minSide and maxSide, "
+	                + "and returns the job with its id"
+	    )
+	@ApiResponse(responseCode = "202", description = "Job queued")
+	@ApiResponse(responseCode = "409", description = "Too many jobs queued")
+	@PostMapping
+	public ResponseEntity<SquareJobDTO> startJob(
+			@PathVariable(required = false) String dataset,
+			@ParameterObject Region region,
+			@ParameterObject SquareFilter filter
+	) {
+		SquareJobDTO job = jobService.submit(Datasets.resolve(dataset), region, filter);
+		return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+	}
+
+
+	@Operation(
+	        summary = "Get job status",
+	        description = "Returns the status, the point pairs scanned so far out of the total and the elapsed time"
+	    )
+	@ApiResponse(responseCode = "404", description = "Job not found")
+	@GetMapping("/{id}")
+	public SquareJobDTO getJob(@PathVariable(required = false) String dataset, @PathVariable String id) {
+		return jobService.getJob(Datasets.resolve(dataset), id);
+	}
+
+
+	@Operation(
+	        summary = "Get job result",
+	        description = "Returns one page of the squares found by a completed job"
+	    )
+	@ApiResponse(responseCode = "409", description = "Job has not completed")
+	@GetMapping("/{id}/result")
+	public List<SquareDTO> getResult(
+			@PathVariable(required = false) String dataset,
+			@PathVariable String id,
+			@RequestParam(required = false) Integer page,
+			@RequestParam(required = false) Integer size
+	) {
+		return jobService.getResult(Datasets.resolve(dataset), id, page, size);
+	}
+
+
+	@Operation(
+	        summary = "Cancel or delete a job",
+	        description = "Cancels a queued or running job; a finished job is deleted together with its result"
+	    )
+	@DeleteMapping("/{id}")
+	public SquareJobDTO cancelJob(@PathVariable(required = false) String dataset, @PathVariable String id) {
+		return jobService.cancel(Datasets.resolve(dataset), id);
+	}
+}
@@ -0,0 +1,129 @@
+package com.justas.squares_backend.detection;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static com.justas.squares_backend.helpers.SquareKey.unpackX;
+import static com.justas.squares_backend.helpers.SquareKey.unpackY;
+
+import java.util.Arrays;
+
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+
+/**
+ * Scan for queries that only want axis-aligned squares, used by
+ * {@link SquareDetector} in place of the configured engine.
+ * <p>
+ * The anchor of an axis-aligned square is its bottom-left corner, and its
+ * bottom side runs to the right along the anchor's row. Points are sorted
+ * into rows of equal y, ordered by x; for an anchor candidate only the later
+ * points of its own row are possible bottom sides, and the side bounds of
+ * the {@link SquareFilter} narrow them further by binary search. Each such
+ * side needs two hash lookups for the top corners, so a scan costs the
+ * number of same-row pairs within the bounds instead of all pairs.
+ * <p>
+ * Each row of the scan is one point in (y, x) order and accounts for its
+ * pairs with all later points. Pairs in later rows are never a bottom side
+ * and are reported as not holding the anchor; pairs of the same row outside
+ * the side bounds are reported as filtered.
+ */
+public class AxisKernel extends SquareScan {
+
+    // Points in (y, x) order
+    private final int[] sortedXs;
+    private final int[] sortedYs;
+
+    // Sorted points with the same y as point i end before rowEnd[i]
+    private final int[] rowEnd;
+
+    public AxisKernel(int[] xs, int[] ys, SquareFilter filter) {
+        super(xs, ys, filter);
+
+        // Packing y first gives (y, x) order
+        long[] byRow = new long[size];
+        for (int i = 0; i < size; i++) {
+            byRow[i] = pack(this.ys[i], this.xs[i]);
+        }
+        Arrays.sort(byRow);
+
+        this.sortedXs = new int[size];
+        this.sortedYs = new int[size];
+        this.rowEnd = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedYs[i] = unpackX(byRow[i]);
+            sortedXs[i] = unpackY(byRow[i]);
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            rowEnd[i] = i + 1 < size && sortedYs[i + 1] == sortedYs[i] ? rowEnd[i + 1] : i + 1;
+        }
+    }
+
+    /**
+     * One row per point, in (y, x) order.
+     */
+    @Override
+    public int rows() {
+        return size;
+    }
+
+    @Override
+    public void scan(int from, int to, LongList out, ScanProgress progress) {
+        LongHashSet points = points();
+        long minSide = filter.minSide() != null ? filter.minSide() : 1;
+        long maxSide = filter.maxSide() != null ? filter.maxSide() : Long.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            checkCancelled(progress);
+
+            int ax = sortedXs[i];
+            int ay = sortedYs[i];
+            ScanCounts counts = new ScanCounts();
+
+            int first = firstFrom(i + 1, rowEnd[i], ax + minSide);
+            int last = maxSide == Long.MAX_VALUE ? rowEnd[i] : firstFrom(first, rowEnd[i], ax + maxSide + 1);
+
+            for (int j = first; j < last; j++) {
+                long side = (long) sortedXs[j] - ax;
+                long top = ay + side;
+                if (!fits(top)) {
+                    counts.outOfRange++;
+                    continue;
+                }
+
+                long adjacent = pack(ax, (int) top);
+                if (!points.contains(adjacent) || !points.contains(pack(sortedXs[j], (int) top))) {
+                    counts.missingCorner++;
+                    continue;
+                }
+
+                out.add(pack(ax, ay));
+                out.add(adjacent);
+            }
+
+            if (progress != null) {
+                long pairs = size - 1 - i;
+                long sameRow = rowEnd[i] - 1 - i;
+                counts.filtered = sameRow - (last - first);
+                counts.notAnchor = pairs - sameRow;
+                progress.advance(pairs, counts);
+            }
+        }
+    }
+
+    /**
+     * Index of the first point in {@code [from, to)} of one row with x of at
+     * least {@code x}, or {@code to}.
+     */
+    private int firstFrom(int from, int to, long x) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedXs[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,371 @@
+package com.justas.squares_backend.detection;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+
+import java.util.Arrays;
+
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+
+/**
+ * The {@link SquareEngine#GRID} engine: the diagonal scan of
+ * {@link SquareKernel}, pruned with a uniform grid over the points.
+ * <p>
+ * Points are bucketed into square cells with a power-of-two side, sized so
+ * that a non-empty cell holds about {@value #POINTS_PER_CELL} points, and
+ * within each cell split by the parity of x + y. Only points of the same
+ * parity can form a diagonal with integer corners, so pairs across the two
+ * classes are accounted for without being visited.
+ * <p>
+ * Each row of the scan is one non-empty cell A paired with itself and every
+ * later non-empty cell C. Before any point pair of (A, C) is looked at, the
+ * boxes that the two remaining corners of all diagonals from A to C can fall
+ * into are computed from the cell bounds; if either box contains no point,
+ * the whole cell pair is skipped. For clustered, elongated or otherwise
+ * sparse layouts most cell pairs are skipped this way and the cost follows
+ * the neighbourhoods that can actually hold squares rather than n^2. Points
+ * spread uniformly leave every cell occupied, so nothing is pruned and the
+ * scan degrades to the diagonal scan plus one box check per cell pair.
+ * <p>
+ * The diagonals that remain are checked like in {@link SquareKernel}, with
+ * an additional test that both corners fall into non-empty cells before
+ * they are looked up. Squares are reported from their anchor diagonal only.
+ * Side-length bounds of a {@link SquareFilter} skip cell pairs that are too
+ * far apart or too close together before their points are visited.
+ */
+public class GridKernel extends SquareScan {
+
+    // Small enough that cells stay local, large enough that the per-cell-pair
+    // box checks cost little next to the point pairs they stand for
+    private static final int POINTS_PER_CELL = 16;
+
+    private final long minX;
+    private final long minY;
+    private final int shift;
+    private final int columns;
+    private final int gridRows;
+
+    // Points sorted by cell, and within a cell even x + y before odd
+    private final int[] cellXs;
+    private final int[] cellYs;
+    private final long[] cellPacked;
+
+    // The points of cell c with parity p are cellStart[2c + p] until cellStart[2c + p + 1]
+    private final int[] cellStart;
+
+    // Ids of the non-empty cells in ascending order, one scan row each
+    private final int[] occupied;
+
+    // Non-empty cells in [0, x) x [0, y) at occupancy[y * (columns + 1) + x]
+    private final int[] occupancy;
+
+    public GridKernel(int[] xs, int[] ys) {
+        this(xs, ys, SquareFilter.NONE);
+    }
+
+    public GridKernel(int[] xs, int[] ys, SquareFilter filter) {
+        super(xs, ys, filter);
+
+        long lowX = 0;
+        long highX = 0;
+        long lowY = 0;
+        long highY = 0;
+        if (size > 0) {
+            lowX = highX = this.xs[0];
+            lowY = highY = this.ys[0];
+        }
+        for (int i = 1; i < size; i++) {
+            lowX = Math.min(lowX, this.xs[i]);
+            highX = Math.max(highX, this.xs[i]);
+            lowY = Math.min(lowY, this.ys[i]);
+            highY = Math.max(highY, this.ys[i]);
+        }
+        long width = highX - lowX + 1;
+        long height = highY - lowY + 1;
+
+        // Smallest power-of-two side that keeps the grid within the target cell count
+        int targetCells = Math.max(1, size / POINTS_PER_CELL);
+        int side = 0;
+        while (true) {
+            long cellColumns = cells(width, side);
+            long cellRows = cells(height, side);
+            if (cellColumns <= targetCells && cellRows <= targetCells && cellColumns * cellRows <= targetCells) {
+                break;
+            }
+            side++;
+        }
+
+        this.minX = lowX;
+        this.minY = lowY;
+        this.shift = side;
+        this.columns = (int) cells(width, side);
+        this.gridRows = (int) cells(height, side);
+
+        int cellCount = columns * gridRows;
+        int[] keys = new int[size];
+        this.cellStart = new int[2 * cellCount + 1];
+        for (int i = 0; i < size; i++) {
+            int cell = cellOf(this.xs[i], this.ys[i]);
+            keys[i] = 2 * cell + ((this.xs[i] + this.ys[i]) & 1);
+            cellStart[keys[i] + 1]++;
+        }
+        for (int k = 1; k < cellStart.length; k++) {
+            cellStart[k] += cellStart[k - 1];
+        }
+
+        this.cellXs = new int[size];
+        this.cellYs = new int[size];
+        this.cellPacked = new long[size];
+        int[] next = Arrays.copyOf(cellStart, 2 * cellCount);
+        for (int i = 0; i < size; i++) {
+            int position = next[keys[i]]++;
+            cellXs[position] = this.xs[i];
+            cellYs[position] = this.ys[i];
+            cellPacked[position] = this.packed[i];
+        }
+
+        int stride = columns + 1;
+        this.occupancy = new int[stride * (gridRows + 1)];
+        int[] nonEmpty = new int[cellCount];
+        int occupiedCount = 0;
+        for (int y = 0; y < gridRows; y++) {
+            for (int x = 0; x < columns; x++) {
+                int cell = y * columns + x;
+                int filled = isEmptyCell(cell) ? 0 : 1;
+                if (filled == 1) {
+                    nonEmpty[occupiedCount++] = cell;
+                }
+                occupancy[(y + 1) * stride + x + 1] = occupancy[y * stride + x + 1]
+                        + occupancy[(y + 1) * stride + x]
+                        - occupancy[y * stride + x]
+                        + filled;
+            }
+        }
+        this.occupied = Arrays.copyOf(nonEmpty, occupiedCount);
+    }
+
+    /**
+     * One row per non-empty cell.
+     */
+    @Override
+    public int rows() {
+        return occupied.length;
+    }
+
+    @Override
+    public void scan(int from, int to, LongList out, ScanProgress progress) {
+        LongHashSet points = points();
+        for (int row = from; row < to; row++) {
+            checkCancelled(progress);
+
+            int a = occupied[row];
+            int aEven = cellStart[2 * a];
+            int aOdd = cellStart[2 * a + 1];
+            int aEnd = cellStart[2 * a + 2];
+            ScanCounts counts = new ScanCounts();
+            long pairs = 0;
+
+            for (int t = row; t < occupied.length; t++) {
+                int c = occupied[t];
+                int cEven = cellStart[2 * c];
+                int cOdd = cellStart[2 * c + 1];
+                int cEnd = cellStart[2 * c + 2];
+
+                long sameParity;
+                long mixedParity;
+                if (a == c) {
+                    long even = aOdd - aEven;
+                    long odd = aEnd - aOdd;
+                    sameParity = even * (even - 1) / 2 + odd * (odd - 1) / 2;
+                    mixedParity = even * odd;
+                } else {
+                    sameParity = (long) (aOdd - aEven) * (cOdd - cEven) + (long) (aEnd - aOdd) * (cEnd - cOdd);
+                    mixedParity = (long) (aOdd - aEven) * (cEnd - cOdd) + (long) (aEnd - aOdd) * (cOdd - cEven);
+                }
+                pairs += sameParity + mixedParity;
+                counts.oddParity += mixedParity;
+
+                if (!sidesCanPass(a, c)) {
+                    counts.filtered += sameParity;
+                    continue;
+                }
+                if (!cornersCanExist(a, c)) {
+                    counts.emptyRegion += sameParity;
+                    continue;
+                }
+
+                scanCells(aEven, aOdd, cEven, cOdd, a == c, points, out, counts);
+                scanCells(aOdd, aEnd, cOdd, cEnd, a == c, points, out, counts);
+            }
+
+            if (progress != null) {
+                progress.advance(pairs, counts);
+            }
+        }
+    }
+
+    /**
+     * Checks the diagonals from the points in {@code [aFrom, aTo)} to those in
+     * {@code [cFrom, cTo)}, which all share one parity class. For a cell
+     * paired with itself both ranges are the same and each pair is visited once.
+     */
+    private void scanCells(int aFrom, int aTo, int cFrom, int cTo, boolean sameCell,
+                           LongHashSet points, LongList out, ScanCounts counts) {
+        boolean filtering = !filter.isUnfiltered();
+        for (int i = aFrom; i < aTo; i++) {
+            int ax = cellXs[i];
+            int ay = cellYs[i];
+            long pa = cellPacked[i];
+
+            for (int j = sameCell ? i + 1 : cFrom; j < cTo; j++) {
+                long dx = (long) cellXs[j] - ax;
+                long dy = (long) cellYs[j] - ay;
+
+                if (filtering && !filter.accepts((dx + dy) / 2, (dy - dx) / 2)) {
+                    counts.filtered++;
+                    continue;
+                }
+
+                long bx = ax + (dx + dy) / 2;
+                long by = ay + (dy - dx) / 2;
+                long dxCorner = ax + (dx - dy) / 2;
+                long dyCorner = ay + (dx + dy) / 2;
+
+                if (!fits(bx) || !fits(by) || !fits(dxCorner) || !fits(dyCorner)) {
+                    counts.outOfRange++;
+                    continue;
+                }
+
+                long pb = pack((int) bx, (int) by);
+                long pd = pack((int) dxCorner, (int) dyCorner);
+                long anchor = Math.min(pa, cellPacked[j]);
+
+                // Report the square only from the diagonal holding its anchor
+                if (anchor > Math.min(pb, pd)) {
+                    counts.notAnchor++;
+                    continue;
+                }
+
+                if (isEmpty(bx, by) || isEmpty(dxCorner, dyCorner)) {
+                    counts.emptyRegion++;
+                    continue;
+                }
+
+                if (!points.contains(pb) || !points.contains(pd)) {
+                    counts.missingCorner++;
+                    continue;
+                }
+
+                out.add(anchor);
+                out.add(isAdjacent(anchor, pb) ? pb : pd);
+            }
+        }
+    }
+
+    /**
+     * Whether any diagonal from cell {@code a} to cell {@code c} can span a
+     * square within the filter's side bounds. A square's diagonal is its
+     * side times sqrt(2), and the diagonals between two cells are at least
+     * as long as the gap between them and at most as long as their joint
+     * extent. Compared in doubles with a small margin, so a cell pair is
+     * never skipped because of rounding.
+     */
+    private boolean sidesCanPass(int a, int c) {
+        if (!filter.hasSideBounds()) {
+            return true;
+        }
+
+        long cell = 1L << shift;
+        long aMinX = (long) (a % columns) << shift;
+        long aMinY = (long) (a / columns) << shift;
+        long cMinX = (long) (c % columns) << shift;
+        long cMinY = (long) (c / columns) << shift;
+
+        double gapX = Math.max(0, Math.abs(cMinX - aMinX) - (cell - 1));
+        double gapY = Math.max(0, Math.abs(cMinY - aMinY) - (cell - 1));
+        double spanX = Math.abs(cMinX - aMinX) + (cell - 1);
+        double spanY = Math.abs(cMinY - aMinY) + (cell - 1);
+
+        if (filter.maxSide() != null) {
+            double max = filter.maxSide();
+            if ((gapX * gapX + gapY * gapY) / 2 > max * max * (1 + 1e-9) + 1) {
+                return false;
+            }
+        }
+        if (filter.minSide() != null) {
+            double min = filter.minSide();
+            if ((spanX * spanX + spanY * spanY) / 2 < min * min * (1 - 1e-9) - 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the diagonals from cell {@code a} to cell {@code c} can have
+     * both remaining corners on stored points. Each corner is a linear
+     * function of the two diagonal ends, so its range over all points of the
+     * two cells is bounded by the cell corners.
+     */
+    private boolean cornersCanExist(int a, int c) {
+        long aMinX = minX + ((long) (a % columns) << shift);
+        long aMinY = minY + ((long) (a / columns) << shift);
+        long cMinX = minX + ((long) (c % columns) << shift);
+        long cMinY = minY + ((long) (c / columns) << shift);
+        long extent = (1L << shift) - 1;
+        long aMaxX = aMinX + extent;
+        long aMaxY = aMinY + extent;
+        long cMaxX = cMinX + extent;
+        long cMaxY = cMinY + extent;
+
+        // b = ((ax + cx + cy - ay) / 2, (ay + cy + ax - cx) / 2)
+        boolean b = anyPointIn(
+                Math.floorDiv(aMinX + cMinX + cMinY - aMaxY, 2), Math.floorDiv(aMaxX + cMaxX + cMaxY - aMinY, 2),
+                Math.floorDiv(aMinY + cMinY + aMinX - cMaxX, 2), Math.floorDiv(aMaxY + cMaxY + aMaxX - cMinX, 2));
+
+        // d = ((ax + cx - cy + ay) / 2, (ay + cy + cx - ax) / 2)
+        return b && anyPointIn(
+                Math.floorDiv(aMinX + cMinX - cMaxY + aMinY, 2), Math.floorDiv(aMaxX + cMaxX - cMinY + aMaxY, 2),
+                Math.floorDiv(aMinY + cMinY + cMinX - aMaxX, 2), Math.floorDiv(aMaxY + cMaxY + cMaxX - aMinX, 2));
+    }
+
+    private boolean anyPointIn(long fromX, long toX, long fromY, long toY) {
+        long firstColumn = Math.max(0, (fromX - minX) >> shift);
+        long lastColumn = Math.min(columns - 1, (toX - minX) >> shift);
+        long firstRow = Math.max(0, (fromY - minY) >> shift);
+        long lastRow = Math.min(gridRows - 1, (toY - minY) >> shift);
+        if (firstColumn > lastColumn || firstRow > lastRow) {
+            return false;
+        }
+
+        int stride = columns + 1;
+        int x0 = (int) firstColumn;
+        int x1 = (int) lastColumn + 1;
+        int y0 = (int) firstRow;
+        int y1 = (int) lastRow + 1;
+        return occupancy[y1 * stride + x1] - occupancy[y0 * stride + x1]
+                - occupancy[y1 * stride + x0] + occupancy[y0 * stride + x0] > 0;
+    }
+
+    private boolean isEmpty(long x, long y) {
+        long column = (x - minX) >> shift;
+        long row = (y - minY) >> shift;
+        if (column < 0 || row < 0 || column >= columns || row >= gridRows) {
+            return true;
+        }
+        return isEmptyCell((int) row * columns + (int) column);
+    }
+
+    private boolean isEmptyCell(int cell) {
+        return cellStart[2 * cell] == cellStart[2 * cell + 2];
+    }
+
+    private int cellOf(int x, int y) {
+        return (int) ((y - minY) >> shift) * columns + (int) ((x - minX) >> shift);
+    }
+
+    private static long cells(long extent, int shift) {
+        return ((extent - 1) >> shift) + 1;
+    }
+}
@@ -0,0 +1,27 @@
+package com.justas.squares_backend.detection;
+
+/**
+ * Tallies of one scan row, handed to {@link ScanProgress} once the row is
+ * done. Every pair a row accounts for ends up in exactly one of these
+ * counts or as a reported square.
+ */
+final class ScanCounts {
+
+    /** Diagonals whose dx + dy is odd, so the corners are not integral. */
+    long oddParity;
+
+    /** Candidates with a computed corner outside the int range. */
+    long outOfRange;
+
+    /** Candidates with a corner where no point is stored at all. */
+    long emptyRegion;
+
+    /** Candidates whose square fails the query's {@link com.justas.squares_backend.helpers.SquareFilter}. */
+    long filtered;
+
+    /** Candidates whose square is reported from another pair. */
+    long notAnchor;
+
+    /** Candidates with a corner that is not a stored point. */
+    long missingCorner;
+}
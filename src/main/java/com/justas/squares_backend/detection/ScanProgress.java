@@ -0,0 +1,109 @@
+package com.justas.squares_backend.detection;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress, statistics and cancellation handle for one detection scan. The
+ * scan adds the counts of each finished row of the outer loop and checks for
+ * cancellation before starting the next row, so both are cheap compared to
+ * the row itself.
+ */
+public class ScanProgress {
+
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder oddParity = new LongAdder();
+    private final LongAdder outOfRange = new LongAdder();
+    private final LongAdder emptyRegion = new LongAdder();
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder notAnchor = new LongAdder();
+    private final LongAdder missingCorner = new LongAdder();
+    private volatile long total;
+    private volatile boolean cancelled;
+
+    void start(int points) {
+        total = (long) points * (points - 1) / 2;
+    }
+
+    void advance(long pairs, ScanCounts counts) {
+        scanned.add(pairs);
+        oddParity.add(counts.oddParity);
+        outOfRange.add(counts.outOfRange);
+        emptyRegion.add(counts.emptyRegion);
+        filtered.add(counts.filtered);
+        notAnchor.add(counts.notAnchor);
+        missingCorner.add(counts.missingCorner);
+    }
+
+    /**
+     * Point pairs examined so far.
+     */
+    public long scanned() {
+        return scanned.sum();
+    }
+
+    /**
+     * Diagonals rejected because dx + dy is odd, i.e. the corners are not integral.
+     */
+    public long oddParity() {
+        return oddParity.sum();
+    }
+
+    /**
+     * Diagonals rejected because a computed corner lies outside the int range.
+     */
+    public long outOfRange() {
+        return outOfRange.sum();
+    }
+
+    /**
+     * Diagonals rejected because a computed corner falls where no point is
+     * stored at all, without looking the corner up.
+     */
+    public long emptyRegion() {
+        return emptyRegion.sum();
+    }
+
+    /**
+     * Candidates rejected because their square fails the query's filter,
+     * including pairs the scan ruled out without visiting them.
+     */
+    public long filtered() {
+        return filtered.sum();
+    }
+
+    /**
+     * Candidate squares skipped because the diagonal does not hold their
+     * anchor: each square is found from both diagonals and only reported
+     * from one, which replaces deduplicating the results afterwards.
+     */
+    public long notAnchor() {
+        return notAnchor.sum();
+    }
+
+    /**
+     * Candidate squares rejected because one of the computed corners is not
+     * a stored point.
+     */
+    public long missingCorner() {
+        return missingCorner.sum();
+    }
+
+    /**
+     * Point pairs the scan examines in total, 0 until the scan has started.
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Asks the scan to stop; it then throws a
+     * {@link java.util.concurrent.CancellationException} at its next row.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,177 @@
+package com.justas.squares_backend.detection;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static com.justas.squares_backend.helpers.SquareKey.unpackX;
+import static com.justas.squares_backend.helpers.SquareKey.unpackY;
+
+import java.util.Arrays;
+
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+
+/**
+ * The {@link SquareEngine#SIDE} engine: squares are found from their anchor
+ * side instead of a diagonal.
+ * <p>
+ * The anchor of a square is its lexicographically smallest corner, and
+ * exactly one of its two sides from the anchor points "up and to the right",
+ * i.e. has dx >= 0 and dy > 0. Rotating that side vector (dx, dy) clockwise
+ * gives (dy, -dx), so the two remaining corners are anchor + (dy, -dx) and
+ * the side's end + (dy, -dx). Enumerating only such sides visits every
+ * square exactly once, with integer arithmetic and without the parity
+ * filter a diagonal needs.
+ * <p>
+ * Points are grouped by x into columns sorted by y. For an anchor candidate
+ * (ax, ay) the side ends lie in the columns from ax on, above ay. The
+ * rotated corner must stay inside the bounding box of all points, which caps
+ * the side at dx <= ay - minY and dy <= maxX - ax; both caps cut the columns
+ * and, by binary search, the y range within each column before any point is
+ * visited. A maximum side length of the {@link SquareFilter} caps both
+ * components the same way. The remaining corners are confirmed with
+ * primitive hash lookups.
+ * <p>
+ * Each row is one point in (x, y) order and accounts for its pairs with all
+ * later points, like a row of {@link SquareKernel}. Pairs that are never
+ * enumerated, because they are not an upward side or exceed a cap, are
+ * reported as not holding the anchor.
+ */
+public class SideKernel extends SquareScan {
+
+    // Points in (x, y) order
+    private final int[] sortedXs;
+    private final int[] sortedYs;
+    private final long[] sortedPacked;
+
+    // Column c has x = columnX[c] and holds sorted points columnStart[c] until columnStart[c + 1]
+    private final int[] columnX;
+    private final int[] columnStart;
+    private final int[] columnOf;
+
+    private final long minY;
+    private final long maxX;
+
+    public SideKernel(int[] xs, int[] ys) {
+        this(xs, ys, SquareFilter.NONE);
+    }
+
+    public SideKernel(int[] xs, int[] ys, SquareFilter filter) {
+        super(xs, ys, filter);
+
+        // Packed order is (x, y) order
+        this.sortedPacked = Arrays.copyOf(packed, size);
+        Arrays.sort(sortedPacked);
+
+        this.sortedXs = new int[size];
+        this.sortedYs = new int[size];
+        this.columnOf = new int[size];
+        int[] columnXs = new int[size];
+        int[] columnStarts = new int[size + 1];
+        int columns = 0;
+        long lowY = 0;
+
+        for (int i = 0; i < size; i++) {
+            sortedXs[i] = unpackX(sortedPacked[i]);
+            sortedYs[i] = unpackY(sortedPacked[i]);
+            lowY = i == 0 ? sortedYs[i] : Math.min(lowY, sortedYs[i]);
+
+            if (i == 0 || sortedXs[i] != sortedXs[i - 1]) {
+                columnXs[columns] = sortedXs[i];
+                columnStarts[columns] = i;
+                columns++;
+            }
+            columnOf[i] = columns - 1;
+        }
+        columnStarts[columns] = size;
+
+        this.columnX = Arrays.copyOf(columnXs, columns);
+        this.columnStart = Arrays.copyOf(columnStarts, columns + 1);
+        this.minY = lowY;
+        this.maxX = size > 0 ? sortedXs[size - 1] : 0;
+    }
+
+    /**
+     * One row per point, in (x, y) order.
+     */
+    @Override
+    public int rows() {
+        return size;
+    }
+
+    @Override
+    public void scan(int from, int to, LongList out, ScanProgress progress) {
+        LongHashSet points = points();
+        boolean filtering = !filter.isUnfiltered();
+        long maxSide = filter.maxSide() != null ? filter.maxSide() : Long.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            checkCancelled(progress);
+
+            int ax = sortedXs[i];
+            int ay = sortedYs[i];
+            long pa = sortedPacked[i];
+            ScanCounts counts = new ScanCounts();
+            long visited = 0;
+
+            // The corner anchor + (dy, -dx) has to stay inside the bounding box,
+            // and neither side component can exceed the maximum side length
+            long maxSideX = (long) ax + Math.min(ay - minY, maxSide);
+            long maxSideY = (long) ay + Math.min(maxX - ax, maxSide);
+
+            for (int c = columnOf[i]; c < columnX.length && columnX[c] <= maxSideX; c++) {
+                int first = c == columnOf[i] ? i + 1 : firstAbove(c, ay);
+                int last = firstAbove(c, maxSideY);
+
+                for (int j = first; j < last; j++) {
+                    visited++;
+                    long dx = (long) sortedXs[j] - ax;
+                    long dy = (long) sortedYs[j] - ay;
+
+                    if (filtering && !filter.accepts(dx, dy)) {
+                        counts.filtered++;
+                        continue;
+                    }
+
+                    long cx = sortedXs[j] + dy;
+                    long cy = sortedYs[j] - dx;
+                    if (cx > maxX || cy < minY) {
+                        counts.emptyRegion++;
+                        continue;
+                    }
+
+                    if (!points.contains(pack((int) (ax + dy), (int) (ay - dx)))
+                            || !points.contains(pack((int) cx, (int) cy))) {
+                        counts.missingCorner++;
+                        continue;
+                    }
+
+                    out.add(pa);
+                    out.add(sortedPacked[j]);
+                }
+            }
+
+            if (progress != null) {
+                long pairs = size - 1 - i;
+                counts.notAnchor = pairs - visited;
+                progress.advance(pairs, counts);
+            }
+        }
+    }
+
+    /**
+     * Index of the first point of column {@code c} with y above {@code y},
+     * or the end of the column.
+     */
+    private int firstAbove(int c, long y) {
+        int low = columnStart[c];
+        int high = columnStart[c + 1];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedYs[middle] <= y) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
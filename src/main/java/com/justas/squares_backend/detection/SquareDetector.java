@@ -0,0 +1,217 @@
+package com.justas.squares_backend.detection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the {@link SquareScan}s of the configured {@link SquareEngine}
+ * ({@code squares.detection.engine}) on a dedicated, bounded
+ * {@link ForkJoinPool}, splitting large point sets across its workers.
+ * <p>
+ * Every scan runs on the pool, never on the calling thread, so at most
+ * {@code squares.detection.parallelism} threads do detection work at once
+ * and request threads (including virtual ones) only wait for the result.
+ * <p>
+ * The rows of a scan are divided into chunks that idle workers steal from
+ * each other; all chunks share the scan's read-only points. Because a scan
+ * reports each square exactly once, chunk results never
+ * overlap and are simply concatenated in index order, which gives exactly
+ * the sequential result. Point sets below the threshold are scanned as one
+ * chunk.
+ * <p>
+ * Each scan records its duration ({@code squares.detection.scan}), the pairs
+ * it examined ({@code squares.detection.pairs}) and the candidates it
+ * rejected by reason ({@code squares.detection.candidates.rejected}). Scans
+ * count per row, so the metrics add nothing to its inner loop but a
+ * few register increments.
+ */
+@Component
+public class SquareDetector {
+
+    // Chunks per worker, so stealing can even out the uneven rows of the scan
+    private static final int CHUNKS_PER_WORKER = 16;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final SquareEngine engine;
+
+    private final Timer scanTimer;
+    private final Counter pairs;
+    private final Counter oddParity;
+    private final Counter outOfRange;
+    private final Counter emptyRegion;
+    private final Counter filtered;
+    private final Counter notAnchor;
+    private final Counter missingCorner;
+
+    /**
+     * Detector using the {@link SquareEngine#DIAGONAL} engine, whose metrics
+     * are kept in a private registry, for use outside the application context.
+     */
+    public SquareDetector(int parallelism, int parallelThreshold) {
+        this(parallelism, parallelThreshold, SquareEngine.DIAGONAL, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public SquareDetector(
+            @Value("${squares.detection.parallelism:0}") int parallelism,
+            @Value("${squares.detection.parallel-threshold:2000}") int parallelThreshold,
+            @Value("${squares.detection.engine:diagonal}") SquareEngine engine,
+            MeterRegistry registry
+    ) {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(workers);
+        this.parallelThreshold = parallelThreshold;
+        this.engine = engine;
+
+        this.scanTimer = Timer.builder("squares.detection.scan")
+                .description("Duration of one square detection scan")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.pairs = Counter.builder("squares.detection.pairs")
+                .description("Point pairs examined as square diagonals")
+                .register(registry);
+        this.oddParity = rejected(registry, "odd_parity");
+        this.outOfRange = rejected(registry, "out_of_range");
+        this.emptyRegion = rejected(registry, "empty_region");
+        this.filtered = rejected(registry, "filtered");
+        this.notAnchor = rejected(registry, "not_anchor");
+        this.missingCorner = rejected(registry, "missing_corner");
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("squares.detection.candidates.rejected")
+                .description("Diagonals or candidate squares the scan rejected")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Prepares a scan of the points with the configured engine.
+     */
+    public SquareScan prepare(int[] xs, int[] ys) {
+        return engine.prepare(xs, ys);
+    }
+
+    /**
+     * Prepares a scan of the points that only reports squares passing
+     * {@code filter}. Axis-aligned queries use the {@link AxisKernel}, which
+     * only looks at pairs within a row; all others go to the configured
+     * engine.
+     */
+    public SquareScan prepare(int[] xs, int[] ys, SquareFilter filter) {
+        if (filter.axisAlignedOnly()) {
+            return new AxisKernel(xs, ys, filter);
+        }
+        return engine.prepare(xs, ys, filter);
+    }
+
+    public LongList detect(int[] xs, int[] ys) {
+        return detect(prepare(xs, ys));
+    }
+
+    public LongList detect(SquareScan scan) {
+        return detect(scan, null);
+    }
+
+    /**
+     * Detects the squares of {@code scan}, reporting to {@code progress}
+     * (may be {@code null}) and stopping with a
+     * {@link java.util.concurrent.CancellationException} once it is cancelled.
+     */
+    public LongList detect(SquareScan scan, ScanProgress progress) {
+        int size = scan.size();
+        int rows = scan.rows();
+        // A fresh handle per scan also collects the metrics when nobody follows the scan
+        ScanProgress tracked = progress != null ? progress : new ScanProgress();
+        tracked.start(size);
+
+        // Small point sets are scanned as a single chunk
+        int grain = size < parallelThreshold || pool.getParallelism() == 1
+                ? Math.max(1, rows)
+                : Math.max(1, rows / (pool.getParallelism() * CHUNKS_PER_WORKER));
+        ScanTask task = new ScanTask(scan, 0, rows, grain, tracked);
+
+        // Waiting on a CompletableFuture, unlike ForkJoinTask.join(), never runs
+        // the task on the calling thread
+        long started = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(task::invoke, pool).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        } finally {
+            record(tracked, System.nanoTime() - started);
+        }
+    }
+
+    private void record(ScanProgress scan, long nanos) {
+        scanTimer.record(nanos, TimeUnit.NANOSECONDS);
+        pairs.increment(scan.scanned());
+        oddParity.increment(scan.oddParity());
+        outOfRange.increment(scan.outOfRange());
+        emptyRegion.increment(scan.emptyRegion());
+        filtered.increment(scan.filtered());
+        notAnchor.increment(scan.notAnchor());
+        missingCorner.increment(scan.missingCorner());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @SuppressWarnings("serial")
+    private static class ScanTask extends RecursiveTask<LongList> {
+
+        private final SquareScan scan;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final ScanProgress progress;
+
+        ScanTask(SquareScan scan, int from, int to, int grain, ScanProgress progress) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.progress = progress;
+        }
+
+        @Override
+        protected LongList compute() {
+            if (to - from <= grain) {
+                LongList squares = new LongList();
+                scan.scan(from, to, squares, progress);
+                return squares;
+            }
+
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scan, from, middle, grain, progress);
+            ScanTask right = new ScanTask(scan, middle, to, grain, progress);
+
+            right.fork();
+            LongList squares = left.compute();
+            squares.addAll(right.join());
+            return squares;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.justas.squares_backend.detection;
+
+import com.justas.squares_backend.helpers.SquareFilter;
+
+/**
+ * Square detection algorithms, selected with {@code squares.detection.engine}.
+ * All engines report the same squares; they differ in how much of the pair
+ * space they have to look at for a given point layout.
+ */
+public enum SquareEngine {
+
+    /**
+     * Every same-parity pair is a candidate diagonal, see {@link SquareKernel}.
+     * Cost is quadratic in the number of points regardless of their layout.
+     */
+    DIAGONAL {
+        @Override
+        public SquareScan prepare(int[] xs, int[] ys, SquareFilter filter) {
+            return new SquareKernel(xs, ys, filter);
+        }
+    },
+
+    /**
+     * Points are bucketed into a grid and whole pairs of cells are ruled out
+     * when their diagonals cannot have corners on any point, see
+     * {@link GridKernel}. Fastest for clustered or elongated layouts.
+     */
+    GRID {
+        @Override
+        public SquareScan prepare(int[] xs, int[] ys, SquareFilter filter) {
+            return new GridKernel(xs, ys, filter);
+        }
+    },
+
+    /**
+     * Squares are enumerated from their anchor side, bounded by the extent of
+     * the point set, see {@link SideKernel}. Suits datasets that are narrow
+     * in x or low in y.
+     */
+    SIDE {
+        @Override
+        public SquareScan prepare(int[] xs, int[] ys, SquareFilter filter) {
+            return new SideKernel(xs, ys, filter);
+        }
+    };
+
+    /**
+     * Builds a scan of the given points.
+     */
+    public SquareScan prepare(int[] xs, int[] ys) {
+        return prepare(xs, ys, SquareFilter.NONE);
+    }
+
+    /**
+     * Builds a scan of the given points that only reports squares passing
+     * {@code filter}.
+     */
+    public abstract SquareScan prepare(int[] xs, int[] ys, SquareFilter filter);
+}
@@ -0,0 +1,105 @@
+package com.justas.squares_backend.detection;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+
+/**
+ * The {@link SquareEngine#DIAGONAL} engine: allocation-free square detection
+ * over primitive coordinate arrays.
+ * <p>
+ * Every pair of points is treated as a potential diagonal and the other two
+ * corners are computed with exact integer arithmetic: a diagonal (dx, dy)
+ * only has integer corners when dx + dy is even. Points are packed into
+ * longs and looked up in a {@link LongHashSet}, so the hot loop allocates
+ * nothing apart from the occasional growth of the output list.
+ * <p>
+ * A square is only emitted from the diagonal that contains its anchor (the
+ * lexicographically smallest corner), so each square is reported exactly
+ * once and no deduplication is needed. A {@link SquareFilter} is checked on
+ * the side vector right after the parity test, before any corner is looked up.
+ */
+public class SquareKernel extends SquareScan {
+
+    public SquareKernel(int[] xs, int[] ys) {
+        this(xs, ys, SquareFilter.NONE);
+    }
+
+    public SquareKernel(int[] xs, int[] ys, SquareFilter filter) {
+        super(xs, ys, filter);
+    }
+
+    /**
+     * One row per point: row i scans the diagonals from point i to every
+     * later point.
+     */
+    @Override
+    public int rows() {
+        return size;
+    }
+
+    @Override
+    public void scan(int from, int to, LongList out, ScanProgress progress) {
+        LongHashSet points = points();
+        boolean filtering = !filter.isUnfiltered();
+        for (int i = from; i < to; i++) {
+            checkCancelled(progress);
+
+            int ax = xs[i];
+            int ay = ys[i];
+            long pa = packed[i];
+            ScanCounts counts = new ScanCounts();
+
+            for (int j = i + 1; j < size; j++) {
+                long dx = (long) xs[j] - ax;
+                long dy = (long) ys[j] - ay;
+
+                // The other corners are only integral when dx and dy share parity
+                if (((dx + dy) & 1) != 0) {
+                    counts.oddParity++;
+                    continue;
+                }
+
+                // Side vector of the square this diagonal would span
+                if (filtering && !filter.accepts((dx + dy) / 2, (dy - dx) / 2)) {
+                    counts.filtered++;
+                    continue;
+                }
+
+                long bx = ax + (dx + dy) / 2;
+                long by = ay + (dy - dx) / 2;
+                long dxCorner = ax + (dx - dy) / 2;
+                long dyCorner = ay + (dx + dy) / 2;
+
+                if (!fits(bx) || !fits(by) || !fits(dxCorner) || !fits(dyCorner)) {
+                    counts.outOfRange++;
+                    continue;
+                }
+
+                long pb = pack((int) bx, (int) by);
+                long pd = pack((int) dxCorner, (int) dyCorner);
+                long anchor = Math.min(pa, packed[j]);
+
+                // Report the square only from the diagonal holding its anchor
+                if (anchor > Math.min(pb, pd)) {
+                    counts.notAnchor++;
+                    continue;
+                }
+
+                if (!points.contains(pb) || !points.contains(pd)) {
+                    counts.missingCorner++;
+                    continue;
+                }
+
+                out.add(anchor);
+                out.add(isAdjacent(anchor, pb) ? pb : pd);
+            }
+
+            if (progress != null) {
+                progress.advance(size - 1 - i, counts);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.justas.squares_backend.detection;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static com.justas.squares_backend.helpers.SquareKey.unpackX;
+import static com.justas.squares_backend.helpers.SquareKey.unpackY;
+
+import java.util.concurrent.CancellationException;
+
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+
+/**
+ * The distinct points of one detection run together with the scan an
+ * {@link SquareEngine} performs over them.
+ * <p>
+ * A scan is divided into rows that {@link SquareDetector} distributes over
+ * its workers. Every row reports the point pairs it accounted for to the
+ * {@link ScanProgress}, whether it examined them one by one or ruled them out
+ * in bulk, so all engines report the same n(n-1)/2 pairs in total. Results
+ * are written as consecutive (anchor, adjacent) pairs, matching
+ * {@link com.justas.squares_backend.helpers.SquareKey}, with each square
+ * reported exactly once. Only squares passing the scan's {@link SquareFilter}
+ * are reported; engines use its bounds to skip work where they can.
+ */
+public abstract class SquareScan {
+
+    protected final int[] xs;
+    protected final int[] ys;
+    protected final long[] packed;
+    protected final int size;
+    protected final SquareFilter filter;
+    private final LongHashSet points;
+
+    protected SquareScan(int[] xs, int[] ys, SquareFilter filter) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        this.filter = filter;
+
+        this.points = new LongHashSet(xs.length);
+        this.xs = new int[xs.length];
+        this.ys = new int[xs.length];
+        this.packed = new long[xs.length];
+
+        // Duplicate points would only produce zero-length diagonals, drop them up front
+        int unique = 0;
+        for (int i = 0; i < xs.length; i++) {
+            long point = pack(xs[i], ys[i]);
+            if (points.add(point)) {
+                this.xs[unique] = xs[i];
+                this.ys[unique] = ys[i];
+                this.packed[unique] = point;
+                unique++;
+            }
+        }
+        this.size = unique;
+    }
+
+    /**
+     * Number of distinct points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The distinct points, packed. Must not be modified while a scan runs.
+     */
+    public LongHashSet points() {
+        return points;
+    }
+
+    /**
+     * Number of rows the scan is divided into.
+     */
+    public abstract int rows();
+
+    public LongList detect() {
+        LongList squares = new LongList();
+        scan(0, rows(), squares);
+        return squares;
+    }
+
+    /**
+     * Scans the rows in {@code [from, to)} and appends the (anchor, adjacent)
+     * pair of each square found to {@code out}.
+     */
+    public void scan(int from, int to, LongList out) {
+        scan(from, to, out, null);
+    }
+
+    /**
+     * Like {@link #scan(int, int, LongList)}, additionally reporting the
+     * pairs and rejected candidates of each finished row to {@code progress}
+     * (may be {@code null}).
+     *
+     * @throws CancellationException if {@code progress} was cancelled
+     */
+    public abstract void scan(int from, int to, LongList out, ScanProgress progress);
+
+    static void checkCancelled(ScanProgress progress) {
+        if (progress != null && progress.isCancelled()) {
+            throw new CancellationException("Square detection cancelled");
+        }
+    }
+
+    /**
+     * Whether {@code corner} is the anchor's neighbour along the side vector
+     * with dx >= 0 and dy > 0.
+     */
+    static boolean isAdjacent(long anchor, long corner) {
+        return unpackX(corner) >= unpackX(anchor) && unpackY(corner) > unpackY(anchor);
+    }
+
+    static boolean fits(long value) {
+        return value == (int) value;
+    }
+}
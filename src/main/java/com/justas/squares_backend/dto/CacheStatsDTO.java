@@ -0,0 +1,5 @@
+package com.justas.squares_backend.dto;
+
+public record CacheStatsDTO(long hits, long misses, long evictions, int entries, long estimatedBytes, long maxBytes) {
+
+}
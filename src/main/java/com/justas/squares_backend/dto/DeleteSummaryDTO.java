@@ -0,0 +1,5 @@
+package com.justas.squares_backend.dto;
+
+public record DeleteSummaryDTO(long deleted) {
+
+}
@@ -0,0 +1,5 @@
+package com.justas.squares_backend.dto;
+
+public record ImportSummaryDTO(long imported, long rejected, long elapsedMillis) {
+
+}
@@ -0,0 +1,7 @@
+package com.justas.squares_backend.dto;
+
+import java.util.List;
+
+public record SquareChangesDTO(long version, boolean reset, List<SquareDTO> added, List<SquareDTO> removed) {
+
+}
@@ -0,0 +1,14 @@
+package com.justas.squares_backend.dto;
+
+public record SquareJobDTO(
+        String id,
+        String dataset,
+        String status,
+        long pairsScanned,
+        long pairsTotal,
+        long elapsedMillis,
+        Integer squareCount,
+        String error
+) {
+
+}
@@ -1,17 +1,30 @@
 package com.justas.squares_backend.entities;
 
+import com.justas.squares_backend.helpers.Datasets;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
+// The unique (dataset, x, y) constraint also serves as the index for coordinate lookups and box queries
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_point_dataset_x_y", columnNames = { "dataset", "x", "y" }))
 public class Point {
 	
+	// Pooled sequence ids let Hibernate batch inserts, IDENTITY would force one round trip per row
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "point_seq")
+	@SequenceGenerator(name = "point_seq", sequenceName = "point_seq", allocationSize = 50)
 	private Long id;
 	
+	@Column(nullable = false, length = Datasets.MAX_NAME_LENGTH)
+	private String dataset = Datasets.DEFAULT;
+	
 	private int x;
 	private int y;
 	
@@ -21,6 +34,16 @@ public class Point {
 		this.x = x;
 		this.y = y;
 	}
+	
+	public Point(String dataset, int x, int y) {
+		this.dataset = dataset;
+		this.x = x;
+		this.y = y;
+	}
+
+	public String getDataset() {
+		return dataset;
+	}
 
 	public int getX() {
 		return x;
@@ -41,6 +64,11 @@ public class Point {
 	public Long getId() {
 		return id;
 	}
+
+	// For point stores that assign ids themselves instead of the database sequence
+	public void setId(Long id) {
+		this.id = id;
+	}
 	
 	
 
@@ -0,0 +1,14 @@
+package com.justas.squares_backend.exceptions;
+
+/**
+ * A point to be stored already exists. Extends {@link IllegalStateException}
+ * so it is answered with {@code 409} like other conflicts, while callers
+ * that can recover, such as skip-existing imports, can catch it alone.
+ */
+@SuppressWarnings("serial")
+public class DuplicatePointException extends IllegalStateException {
+
+    public DuplicatePointException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,7 @@ package com.justas.squares_backend.exceptions;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -33,6 +34,18 @@ public class GlobalExceptionHandler {
                 .body(ex.getMessage());
     }
 
+    // Only the unique (dataset, x, y) constraint means a duplicate; any other violation is a server error
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<?> handleConstraintViolation(DataIntegrityViolationException ex) {
+        if (!PointConstraints.isDuplicatePoint(ex)) {
+            return handleUnexpected(ex);
+        }
+    		log.error(ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body("Duplicates not allowed. Point already exists");
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<?> handleInvalidJson(HttpMessageNotReadableException ex) {
 
@@ -64,6 +77,12 @@ public class GlobalExceptionHandler {
                              .body(new ErrorDTO(ex.getMessage()));
     }
 
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ErrorDTO> handleJobNotFound(JobNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                             .body(new ErrorDTO(ex.getMessage()));
+    }
+
 
 
     @ExceptionHandler(Exception.class)
@@ -0,0 +1,9 @@
+package com.justas.squares_backend.exceptions;
+
+@SuppressWarnings("serial")
+public class JobNotFoundException extends RuntimeException {
+
+    public JobNotFoundException(String id) {
+        super("Square detection job not found: " + id);
+    }
+}
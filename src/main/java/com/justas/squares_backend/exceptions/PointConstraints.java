@@ -0,0 +1,40 @@
+package com.justas.squares_backend.exceptions;
+
+import java.util.Locale;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Tells violations of the unique (dataset, x, y) constraint of the point
+ * table apart from other integrity failures (NOT NULL, length, ...), which
+ * must not be reported as duplicate points.
+ */
+public final class PointConstraints {
+
+    public static final String UNIQUE_COORDINATES = "uk_point_dataset_x_y";
+
+    private PointConstraints() {}
+
+    /**
+     * Whether {@code ex} was caused by a point that is already stored. The
+     * constraint name reported by Hibernate is preferred; failures from plain
+     * JDBC or the mapped store only carry it in their message.
+     */
+    public static boolean isDuplicatePoint(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return names(violation.getConstraintName());
+            }
+            if (cause.getMessage() != null && names(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // H2 reports constraint names upper-case and qualified, e.g. PUBLIC.UK_POINT_DATASET_X_Y_INDEX_4
+    private static boolean names(String text) {
+        return text.toLowerCase(Locale.ROOT).contains(UNIQUE_COORDINATES);
+    }
+}
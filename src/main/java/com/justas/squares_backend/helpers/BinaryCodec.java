@@ -0,0 +1,131 @@
+package com.justas.squares_backend.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.justas.squares_backend.dto.PointInputDTO;
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.dto.SquarePointDTO;
+
+/**
+ * Compact binary wire format, selected with the {@link #MEDIA_TYPE} content
+ * type. Everything is a flat stream of little-endian int32 values without a
+ * header:
+ * <ul>
+ * <li>points are (x, y) pairs, 8 bytes each</li>
+ * <li>squares are their four corners as (x, y) pairs in lexicographic order,
+ * like {@link SquareDTO}, 32 bytes each</li>
+ * </ul>
+ * The number of records follows from the length of the stream.
+ */
+public final class BinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-squares-int32";
+
+    public static final int POINT_BYTES = 2 * Integer.BYTES;
+    public static final int SQUARE_BYTES = 4 * POINT_BYTES;
+
+    // Records are copied through a buffer of this many bytes
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private BinaryCodec() {}
+
+    /**
+     * Reads (x, y) pairs until the end of {@code input}.
+     *
+     * @throws IllegalArgumentException if the stream ends inside a point
+     */
+    public static List<PointInputDTO> readPoints(InputStream input) throws IOException {
+        List<PointInputDTO> points = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        int read;
+        while ((read = input.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+            buffer.position(buffer.position() + read);
+            buffer.flip();
+            while (buffer.remaining() >= POINT_BYTES) {
+                points.add(new PointInputDTO(buffer.getInt(), buffer.getInt()));
+            }
+            buffer.compact();
+        }
+
+        if (buffer.position() != 0) {
+            throw new IllegalArgumentException(
+                    "Invalid binary points: length must be a multiple of " + POINT_BYTES + " bytes"
+            );
+        }
+        return points;
+    }
+
+    public static void writePoints(List<PointInputDTO> points, OutputStream output) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (PointInputDTO point : points) {
+            if (buffer.remaining() < POINT_BYTES) {
+                drain(buffer, output);
+            }
+            buffer.putInt(point.x()).putInt(point.y());
+        }
+        drain(buffer, output);
+    }
+
+    /**
+     * Writes the squares given as packed (anchor, adjacent) pairs, as
+     * returned by {@link SquareKey#anchor()} and {@link SquareKey#adjacent()},
+     * without creating any {@link SquareDTO}.
+     */
+    public static void writeSquares(long[] keys, OutputStream output) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < keys.length; i += 2) {
+            if (buffer.remaining() < SQUARE_BYTES) {
+                drain(buffer, output);
+            }
+            for (long corner : new SquareKey(keys[i], keys[i + 1]).corners()) {
+                buffer.putInt(SquareKey.unpackX(corner)).putInt(SquareKey.unpackY(corner));
+            }
+        }
+        drain(buffer, output);
+    }
+
+    /**
+     * Reads squares until the end of {@code input}. The server never reads
+     * squares itself; this is the reference decoder for clients of the
+     * binary squares endpoint, and what the tests check the encoding with.
+     *
+     * @throws IllegalArgumentException if the stream ends inside a square
+     */
+    public static List<SquareDTO> readSquares(InputStream input) throws IOException {
+        List<SquareDTO> squares = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        int read;
+        while ((read = input.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+            buffer.position(buffer.position() + read);
+            buffer.flip();
+            while (buffer.remaining() >= SQUARE_BYTES) {
+                squares.add(new SquareDTO(List.of(
+                        new SquarePointDTO(buffer.getInt(), buffer.getInt()),
+                        new SquarePointDTO(buffer.getInt(), buffer.getInt()),
+                        new SquarePointDTO(buffer.getInt(), buffer.getInt()),
+                        new SquarePointDTO(buffer.getInt(), buffer.getInt()))));
+            }
+            buffer.compact();
+        }
+
+        if (buffer.position() != 0) {
+            throw new IllegalArgumentException(
+                    "Invalid binary squares: length must be a multiple of " + SQUARE_BYTES + " bytes"
+            );
+        }
+        return squares;
+    }
+
+    private static void drain(ByteBuffer buffer, OutputStream output) throws IOException {
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
@@ -0,0 +1,34 @@
+package com.justas.squares_backend.helpers;
+
+import java.util.regex.Pattern;
+
+/**
+ * Names of the point sets a single instance can serve. Requests without a
+ * dataset in the path work on {@link #DEFAULT}.
+ */
+public final class Datasets {
+
+    public static final String DEFAULT = "default";
+    public static final int MAX_NAME_LENGTH = 64;
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0," + (MAX_NAME_LENGTH - 1) + "}");
+
+    private Datasets() {}
+
+    /**
+     * Returns the dataset a request addresses: {@link #DEFAULT} when none is
+     * given, otherwise the validated name.
+     */
+    public static String resolve(String name) {
+        if (name == null) {
+            return DEFAULT;
+        }
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException(
+                    "Invalid dataset name: use up to " + MAX_NAME_LENGTH
+                            + " letters, digits, '-' or '_', starting with a letter or digit"
+            );
+        }
+        return name;
+    }
+}
@@ -0,0 +1,180 @@
+package com.justas.squares_backend.helpers;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing hash set of primitive longs with linear probing.
+ * <p>
+ * Used for packed point coordinates so membership checks in the detection
+ * loops neither box values nor allocate. Not thread-safe; concurrent reads
+ * are fine once the set is no longer modified.
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int mask;
+    private int size;
+
+    // EMPTY marks free slots, so the value 0 itself is tracked separately
+    private boolean containsEmpty;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+
+        int slot = slot(value);
+        while (true) {
+            long current = table[slot];
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(value);
+        while (true) {
+            long current = table[slot];
+            if (current == value) {
+                return false;
+            }
+            if (current == EMPTY) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = value;
+        size++;
+
+        // Keep the load factor at or below 1/2 so probe chains stay short
+        if (size * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        return true;
+    }
+
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            if (!containsEmpty) {
+                return false;
+            }
+            containsEmpty = false;
+            size--;
+            return true;
+        }
+
+        int slot = slot(value);
+        while (true) {
+            long current = table[slot];
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == value) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Shift following entries back so no probe chain is broken
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = slot(table[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsEmpty) {
+            action.accept(EMPTY);
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] values = new long[size];
+        int i = 0;
+        if (containsEmpty) {
+            values[i++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                values[i++] = value;
+            }
+        }
+        return values;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        mask = capacity - 1;
+
+        for (long value : old) {
+            if (value != EMPTY) {
+                int slot = slot(value);
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    private int slot(long value) {
+        // Finalizer of MurmurHash3 spreads packed (x, y) pairs over the table
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
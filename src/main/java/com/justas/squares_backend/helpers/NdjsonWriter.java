@@ -0,0 +1,35 @@
+package com.justas.squares_backend.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes values as newline-delimited JSON, one value per line, straight to
+ * the response stream.
+ */
+public class NdjsonWriter {
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream output;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream output) {
+        this.objectMapper = objectMapper;
+        this.output = output;
+    }
+
+    /**
+     * Writes one line. I/O errors, typically a disconnected client, are
+     * rethrown unchecked so the producer stops.
+     */
+    public void write(Object value) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(value));
+            output.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.justas.squares_backend.helpers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.justas.squares_backend.dto.PointInputDTO;
+
+/**
+ * Reads points from an NDJSON or CSV stream one record at a time and hands
+ * them on in fixed-size chunks, so memory stays bounded by the chunk size
+ * rather than by the upload size.
+ * <p>
+ * NDJSON lines are parsed with Jackson's streaming parser without building a
+ * tree. CSV lines are {@code x,y}, with an optional header. Records that are
+ * malformed or miss a coordinate are counted and skipped.
+ */
+public class PointStreamReader {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format fromContentType(String contentType) {
+            return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/csv") ? CSV : NDJSON;
+        }
+    }
+
+    private final JsonFactory jsonFactory;
+
+    public PointStreamReader(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Reads the whole stream, passing every full chunk and the final partial
+     * one to {@code chunkConsumer}.
+     *
+     * @return number of malformed records
+     */
+    public long read(InputStream input, Format format, int chunkSize,
+            Consumer<List<PointInputDTO>> chunkConsumer) throws IOException {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<PointInputDTO> chunk = new ArrayList<>(chunkSize);
+        long malformed = 0;
+        boolean firstRecord = true;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            PointInputDTO point = format == Format.CSV ? parseCsv(line) : parseJson(line);
+
+            // A CSV header such as "x,y" is not a rejected record
+            boolean header = format == Format.CSV && firstRecord && point == null
+                    && Character.isLetter(line.charAt(0));
+            firstRecord = false;
+
+            if (point == null) {
+                if (!header) {
+                    malformed++;
+                }
+                continue;
+            }
+
+            chunk.add(point);
+            if (chunk.size() == chunkSize) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+
+        return malformed;
+    }
+
+    private PointInputDTO parseJson(String line) {
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            Integer x = null;
+            Integer y = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if (!"x".equals(field) && !"y".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (value != JsonToken.VALUE_NUMBER_INT) {
+                    return null;
+                }
+
+                if ("x".equals(field)) {
+                    x = parser.getIntValue();
+                } else {
+                    y = parser.getIntValue();
+                }
+            }
+
+            if (parser.nextToken() != null || x == null || y == null) {
+                return null;
+            }
+            return new PointInputDTO(x, y);
+        } catch (IOException ex) {
+            // Covers broken JSON as well as numbers outside the int range
+            return null;
+        }
+    }
+
+    private PointInputDTO parseCsv(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0 || line.indexOf(',', comma + 1) >= 0) {
+            return null;
+        }
+
+        try {
+            int x = Integer.parseInt(line.substring(0, comma).strip());
+            int y = Integer.parseInt(line.substring(comma + 1).strip());
+            return new PointInputDTO(x, y);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.justas.squares_backend.helpers;
+
+/**
+ * Axis-aligned bounding box used to filter points and squares. Bounds are
+ * inclusive; a missing bound leaves that side open.
+ */
+public record Region(Integer minX, Integer maxX, Integer minY, Integer maxY) {
+
+    public boolean isUnbounded() {
+        return minX == null && maxX == null && minY == null && maxY == null;
+    }
+
+    public boolean isValid() {
+        return fromX() <= toX() && fromY() <= toY();
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= fromX() && x <= toX() && y >= fromY() && y <= toY();
+    }
+
+    public int fromX() {
+        return minX != null ? minX : Integer.MIN_VALUE;
+    }
+
+    public int toX() {
+        return maxX != null ? maxX : Integer.MAX_VALUE;
+    }
+
+    public int fromY() {
+        return minY != null ? minY : Integer.MIN_VALUE;
+    }
+
+    public int toY() {
+        return maxY != null ? maxY : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,66 @@
+package com.justas.squares_backend.helpers;
+
+/**
+ * Restricts which squares a query returns: only axis-aligned ones and/or
+ * only those whose side length lies within [minSide, maxSide]. Bounds are
+ * inclusive and apply to the Euclidean side length; missing values leave
+ * the filter open.
+ */
+public record SquareFilter(Boolean axisAligned, Integer minSide, Integer maxSide) {
+
+    public static final SquareFilter NONE = new SquareFilter(null, null, null);
+
+    public boolean isUnfiltered() {
+        return !axisAlignedOnly() && minSide == null && maxSide == null;
+    }
+
+    public boolean isValid() {
+        return (minSide == null || minSide >= 0)
+                && (maxSide == null || maxSide >= 0)
+                && (minSide == null || maxSide == null || minSide <= maxSide);
+    }
+
+    public boolean axisAlignedOnly() {
+        return Boolean.TRUE.equals(axisAligned);
+    }
+
+    public boolean hasSideBounds() {
+        return minSide != null || maxSide != null;
+    }
+
+    /**
+     * Whether a square with side vector (dx, dy) passes the filter. Exact for
+     * any difference of two int coordinates: the squared length is only
+     * computed once both components are known to be below the bound, so it
+     * cannot overflow.
+     */
+    public boolean accepts(long dx, long dy) {
+        long x = Math.abs(dx);
+        long y = Math.abs(dy);
+
+        if (axisAlignedOnly() && x != 0 && y != 0) {
+            return false;
+        }
+        if (maxSide != null) {
+            if (x > maxSide || y > maxSide) {
+                return false;
+            }
+            if (x * x + y * y > (long) maxSide * maxSide) {
+                return false;
+            }
+        }
+        if (minSide != null && x < minSide && y < minSide) {
+            return x * x + y * y >= (long) minSide * minSide;
+        }
+        return true;
+    }
+
+    /**
+     * Whether {@code square} passes the filter.
+     */
+    public boolean accepts(SquareKey square) {
+        return accepts(
+                (long) SquareKey.unpackX(square.adjacent()) - SquareKey.unpackX(square.anchor()),
+                (long) SquareKey.unpackY(square.adjacent()) - SquareKey.unpackY(square.anchor()));
+    }
+}
@@ -0,0 +1,76 @@
+package com.justas.squares_backend.helpers;
+
+import java.util.Arrays;
+
+/**
+ * Canonical, packed identity of a square.
+ * <p>
+ * {@code anchor} is the lexicographically smallest corner (by x, then y) and
+ * {@code adjacent} is the neighbouring corner whose side vector from the
+ * anchor has {@code dx >= 0} and {@code dy > 0}. Exactly one neighbour
+ * satisfies that, so every square has a single key no matter which of its
+ * corners it was found from. Corners are packed into longs with
+ * {@link #pack(int, int)}, which keeps lexicographic order.
+ */
+public record SquareKey(long anchor, long adjacent) implements Comparable<SquareKey> {
+
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | ((y ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) packed ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Builds the key of the square with the given packed corners, in any order.
+     */
+    public static SquareKey of(long a, long b, long c, long d) {
+        long anchor = Math.min(Math.min(a, b), Math.min(c, d));
+
+        long adjacent = 0;
+        long best = Long.MAX_VALUE;
+        for (long corner : new long[] { a, b, c, d }) {
+            long dx = (long) unpackX(corner) - unpackX(anchor);
+            long dy = (long) unpackY(corner) - unpackY(anchor);
+
+            // The diagonal can also point up and right, but it is the longer one
+            if (dx >= 0 && dy > 0 && dx * dx + dy * dy < best) {
+                best = dx * dx + dy * dy;
+                adjacent = corner;
+            }
+        }
+
+        return new SquareKey(anchor, adjacent);
+    }
+
+    /**
+     * Returns the four packed corners in lexicographic order.
+     */
+    public long[] corners() {
+        int ax = unpackX(anchor);
+        int ay = unpackY(anchor);
+        int vx = unpackX(adjacent) - ax;
+        int vy = unpackY(adjacent) - ay;
+
+        // The other neighbour is the side vector rotated by -90 degrees
+        long[] corners = {
+                anchor,
+                adjacent,
+                pack(ax + vy, ay - vx),
+                pack(ax + vx + vy, ay + vy - vx)
+        };
+        Arrays.sort(corners);
+        return corners;
+    }
+
+    @Override
+    public int compareTo(SquareKey other) {
+        int byAnchor = Long.compare(anchor, other.anchor);
+        return byAnchor != 0 ? byAnchor : Long.compare(adjacent, other.adjacent);
+    }
+}
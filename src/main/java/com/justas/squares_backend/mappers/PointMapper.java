@@ -6,8 +6,8 @@ import com.justas.squares_backend.entities.Point;
 
 public class PointMapper {
 	
-	public static Point toEntity(PointInputDTO dto) {
-		return new Point(dto.x(), dto.y());
+	public static Point toEntity(String dataset, PointInputDTO dto) {
+		return new Point(dataset, dto.x(), dto.y());
 	}
 	
 	public static PointOutputDTO toOutputDTO(Point entity) {
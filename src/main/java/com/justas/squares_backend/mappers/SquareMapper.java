@@ -0,0 +1,24 @@
+package com.justas.squares_backend.mappers;
+
+import java.util.List;
+
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.dto.SquarePointDTO;
+import com.justas.squares_backend.helpers.SquareKey;
+
+public class SquareMapper {
+
+	public static SquareDTO toDTO(SquareKey key) {
+		long[] corners = key.corners();
+		return new SquareDTO(List.of(
+				toPointDTO(corners[0]),
+				toPointDTO(corners[1]),
+				toPointDTO(corners[2]),
+				toPointDTO(corners[3])));
+	}
+
+	private static SquarePointDTO toPointDTO(long packed) {
+		return new SquarePointDTO(SquareKey.unpackX(packed), SquareKey.unpackY(packed));
+	}
+
+}
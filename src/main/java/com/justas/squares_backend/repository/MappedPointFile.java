@@ -0,0 +1,507 @@
+package com.justas.squares_backend.repository;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The points of one dataset in two memory-mapped files, used by
+ * {@link MappedPointRepository}.
+ * <p>
+ * {@code <dataset>.points} holds a header and an append-only array of
+ * records, each a point packed with
+ * {@link com.justas.squares_backend.helpers.SquareKey#pack}. A record never
+ * changes once written, so its number is a stable id and readers can walk
+ * the array without locking. {@code <dataset>.index} is an open-addressing
+ * hash table with linear probing whose slots hold record number + 1 of each
+ * stored point (0 marks a free slot). It answers coordinate lookups and
+ * duplicate checks, and is the authority on which records are still live:
+ * deleting a point only frees its slot.
+ * <p>
+ * Both files live outside the Java heap; the heap only keeps a bitmap of the
+ * live records, one bit per record, rebuilt from the index when the file is
+ * opened. Mutations are serialized by a lock and are written to the page
+ * cache right away; {@link #force()} makes them durable. The bitmap is changed
+ * in place, so it is only read under the lock, and scans work on a copy
+ * taken with {@link #liveBits()}.
+ */
+final class MappedPointFile implements Closeable {
+
+    private static final long POINTS_MAGIC = 0x5351_5054_5300_0001L;
+    private static final long INDEX_MAGIC = 0x5351_5049_5800_0001L;
+    private static final int HEADER = 64;
+
+    // Points header: magic, store number, number of records
+    private static final int STORE_AT = 8;
+    private static final int RECORDS_AT = 16;
+
+    // Index header: magic, capacity, number of occupied slots
+    private static final int CAPACITY_AT = 8;
+    private static final int OCCUPIED_AT = 16;
+
+    private static final int INITIAL_RECORDS = 1 << 12;
+    private static final int INITIAL_SLOTS = 1 << 13;
+
+    // One mapping addresses at most 2 GB
+    static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER) / Long.BYTES;
+    private static final int MAX_SLOTS = 1 << 28;
+
+    private final String dataset;
+    private final int store;
+    private final Path indexPath;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final FileChannel pointsChannel;
+    private FileChannel indexChannel;
+
+    // Replaced when the files grow; readers holding an older mapping still
+    // see every record that existed when they took it
+    private volatile MappedByteBuffer points;
+    private MappedByteBuffer index;
+
+    // Guarded by lock
+    private long[] liveBits;
+
+    private volatile int records;
+    private volatile int size;
+    private int capacity;
+    private int slots;
+    private int mask;
+
+    private MappedPointFile(String dataset, int store, Path indexPath, FileChannel pointsChannel) {
+        this.dataset = dataset;
+        this.store = store;
+        this.indexPath = indexPath;
+        this.pointsChannel = pointsChannel;
+    }
+
+    /**
+     * Creates the files of a new, empty dataset with the given store number.
+     */
+    static MappedPointFile create(Path directory, String dataset, int store) {
+        Path pointsPath = directory.resolve(dataset + ".points");
+        Path indexPath = directory.resolve(dataset + ".index");
+        try {
+            FileChannel channel = FileChannel.open(pointsPath,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedPointFile file = new MappedPointFile(dataset, store, indexPath, channel);
+
+            file.capacity = INITIAL_RECORDS;
+            file.points = file.mapPoints(INITIAL_RECORDS);
+            file.points.putLong(0, POINTS_MAGIC);
+            file.points.putInt(STORE_AT, store);
+            file.points.putInt(RECORDS_AT, 0);
+            file.liveBits = new long[INITIAL_RECORDS / Long.SIZE];
+
+            file.writeIndex(INITIAL_SLOTS);
+            return file;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create point store for dataset " + dataset, ex);
+        }
+    }
+
+    /**
+     * Opens the files of an existing dataset.
+     */
+    static MappedPointFile open(Path directory, String dataset) {
+        Path pointsPath = directory.resolve(dataset + ".points");
+        Path indexPath = directory.resolve(dataset + ".index");
+        try {
+            FileChannel channel = FileChannel.open(pointsPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long recordsInFile = (channel.size() - HEADER) / Long.BYTES;
+            if (recordsInFile < 0 || recordsInFile > MAX_RECORDS) {
+                channel.close();
+                throw new IllegalStateException("Corrupt point store " + pointsPath);
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getLong(0) != POINTS_MAGIC) {
+                channel.close();
+                throw new IllegalStateException("Not a point store: " + pointsPath);
+            }
+
+            MappedPointFile file = new MappedPointFile(dataset, header.getInt(STORE_AT), indexPath, channel);
+            file.capacity = (int) recordsInFile;
+            file.points = file.mapPoints(file.capacity);
+            file.records = file.points.getInt(RECORDS_AT);
+            file.openIndex();
+            return file;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open point store for dataset " + dataset, ex);
+        }
+    }
+
+    String dataset() {
+        return dataset;
+    }
+
+    int store() {
+        return store;
+    }
+
+    /**
+     * Number of records ever appended, live or deleted.
+     */
+    int records() {
+        return records;
+    }
+
+    /**
+     * Number of live points.
+     */
+    int size() {
+        return size;
+    }
+
+    boolean isLive(int record) {
+        lock.lock();
+        try {
+            return live(record);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The packed point of {@code record}, live or not.
+     */
+    long packed(int record) {
+        return points.getLong(HEADER + record * Long.BYTES);
+    }
+
+    /**
+     * Snapshot of the live bitmap, for scans over many records. It is taken
+     * under the lock, so it never shows half of a mutation, and later adds
+     * and deletes do not change it.
+     */
+    long[] liveBits() {
+        lock.lock();
+        try {
+            return liveBits.clone();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record of the live point (x, y), or -1.
+     */
+    int find(int x, int y) {
+        lock.lock();
+        try {
+            int slot = findSlot(pack(x, y));
+            return slot < 0 ? -1 : index.getInt(HEADER + slot * Integer.BYTES) - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends all points, or none if any of them is already stored or
+     * repeats within {@code packed}.
+     *
+     * @return the record of each point, or {@code null} if one was a duplicate
+     */
+    int[] addAll(long[] packed) {
+        return replaceAll(new int[0], packed);
+    }
+
+    /**
+     * Deletes the points stored in {@code replaced} and appends
+     * {@code packed} in one step, or does neither if a point of
+     * {@code packed} repeats or is stored in a record not being replaced.
+     * Records are never rewritten, so a replaced point gets a new record.
+     *
+     * @return the record of each appended point, or {@code null} if one was a duplicate
+     */
+    int[] replaceAll(int[] replaced, long[] packed) {
+        lock.lock();
+        try {
+            // Check the whole batch before writing anything, so a duplicate leaves the file untouched
+            int[] freed = replaced.clone();
+            Arrays.sort(freed);
+            long[] sorted = packed.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) {
+                if (i > 0 && sorted[i] == sorted[i - 1]) {
+                    return null;
+                }
+                int slot = findSlot(sorted[i]);
+                if (slot >= 0 && Arrays.binarySearch(freed, index.getInt(HEADER + slot * Integer.BYTES) - 1) < 0) {
+                    return null;
+                }
+            }
+            if ((long) records + packed.length > MAX_RECORDS) {
+                throw new IllegalStateException("Point store for dataset " + dataset + " is full");
+            }
+
+            removeLive(replaced);
+            ensureCapacity(records + packed.length);
+            ensureSlots(size + packed.length);
+
+            int[] added = new int[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                int record = records + i;
+                points.putLong(HEADER + record * Long.BYTES, packed[i]);
+                insertSlot(packed[i], record);
+                liveBits[record >>> 6] |= 1L << record;
+                added[i] = record;
+            }
+
+            // Publish the records only after they and their index slots are written,
+            // so a reader counting records never sees part of the batch
+            records += packed.length;
+            size += packed.length;
+            points.putInt(RECORDS_AT, records);
+            index.putInt(OCCUPIED_AT, size);
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the point stored in {@code record}.
+     *
+     * @return false if the record was not live
+     */
+    boolean remove(int record) {
+        return removeAll(new int[] { record }) == 1;
+    }
+
+    /**
+     * Deletes the points stored in {@code records} under one lock, so a scan
+     * sees either all of them or none deleted. Records that are not live,
+     * including -1 from {@link #find}, are skipped.
+     *
+     * @return number of points deleted
+     */
+    int removeAll(int[] records) {
+        lock.lock();
+        try {
+            int removed = removeLive(records);
+            if (removed > 0) {
+                index.putInt(OCCUPIED_AT, size);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void force() {
+        lock.lock();
+        try {
+            points.force();
+            index.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            force();
+            pointsChannel.close();
+            indexChannel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot close point store for dataset " + dataset, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Callers hold the lock and write the occupied count afterwards
+    private int removeLive(int[] records) {
+        int removed = 0;
+        for (int record : records) {
+            if (record < 0 || record >= this.records || !live(record)) {
+                continue;
+            }
+
+            removeSlot(findSlot(packed(record)));
+            liveBits[record >>> 6] &= ~(1L << record);
+            size--;
+            removed++;
+        }
+        return removed;
+    }
+
+    private MappedByteBuffer mapPoints(int recordCapacity) throws IOException {
+        return pointsChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) recordCapacity * Long.BYTES);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= capacity) {
+            return;
+        }
+
+        int grown = (int) Math.min(MAX_RECORDS, Math.max(needed, (long) capacity * 2));
+        try {
+            points = mapPoints(grown);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot grow point store for dataset " + dataset, ex);
+        }
+        capacity = grown;
+        liveBits = Arrays.copyOf(liveBits, (grown + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private void ensureSlots(int points) {
+        // Keep the load factor at or below 1/2 so probe chains stay short
+        if ((long) points * 2 <= slots) {
+            return;
+        }
+
+        writeIndex(slotsFor(points));
+    }
+
+    private int slotsFor(int points) {
+        long slots = INITIAL_SLOTS;
+        while (slots < (long) points * 2) {
+            slots *= 2;
+        }
+        if (slots > MAX_SLOTS) {
+            throw new IllegalStateException("Point store for dataset " + dataset + " is full");
+        }
+        return (int) slots;
+    }
+
+    /**
+     * Writes a fresh index of {@code capacity} slots holding every live
+     * record, then swaps it in for the current one.
+     */
+    private void writeIndex(int capacity) {
+        Path building = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try {
+            FileChannel channel = FileChannel.open(building, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER + (long) capacity * Integer.BYTES);
+            table.putLong(0, INDEX_MAGIC);
+            table.putInt(CAPACITY_AT, capacity);
+
+            this.index = table;
+            this.slots = capacity;
+            this.mask = capacity - 1;
+
+            int occupied = 0;
+            for (int record = 0; record < records; record++) {
+                if (live(record)) {
+                    insertSlot(packed(record), record);
+                    occupied++;
+                }
+            }
+            table.putInt(OCCUPIED_AT, occupied);
+            table.force();
+
+            Files.move(building, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+            indexChannel = channel;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write point index for dataset " + dataset, ex);
+        }
+    }
+
+    private void openIndex() throws IOException {
+        // The index is only ever replaced atomically; without it deleted records cannot be told apart
+        if (!Files.exists(indexPath)) {
+            throw new IllegalStateException("Point index missing: " + indexPath);
+        }
+
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+        if (index.getLong(0) != INDEX_MAGIC) {
+            throw new IllegalStateException("Not a point index: " + indexPath);
+        }
+        slots = index.getInt(CAPACITY_AT);
+        mask = slots - 1;
+
+        liveBits = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int stored = index.getInt(HEADER + slot * Integer.BYTES);
+            if (stored != 0) {
+                int record = stored - 1;
+                if (record >= capacity) {
+                    throw new IllegalStateException("Point index does not match its records: " + indexPath);
+                }
+                liveBits[record >>> 6] |= 1L << record;
+                // A batch interrupted before its record count was written is still complete in the index
+                records = Math.max(records, stored);
+                live++;
+            }
+        }
+        size = live;
+    }
+
+    private boolean live(int record) {
+        int word = record >>> 6;
+        return word < liveBits.length && (liveBits[word] & (1L << record)) != 0;
+    }
+
+    /**
+     * Slot holding {@code point}, or -1.
+     */
+    private int findSlot(long point) {
+        int slot = slotOf(point);
+        while (true) {
+            int stored = index.getInt(HEADER + slot * Integer.BYTES);
+            if (stored == 0) {
+                return -1;
+            }
+            if (packed(stored - 1) == point) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insertSlot(long point, int record) {
+        int slot = slotOf(point);
+        while (index.getInt(HEADER + slot * Integer.BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index.putInt(HEADER + slot * Integer.BYTES, record + 1);
+    }
+
+    private void removeSlot(int slot) {
+        // Shift following entries back so no probe chain is broken
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        int stored;
+        while ((stored = index.getInt(HEADER + next * Integer.BYTES)) != 0) {
+            int home = slotOf(packed(stored - 1));
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index.putInt(HEADER + gap * Integer.BYTES, stored);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index.putInt(HEADER + gap * Integer.BYTES, 0);
+    }
+
+    private int slotOf(long point) {
+        // Finalizer of MurmurHash3, as in LongHashSet
+        long h = point;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
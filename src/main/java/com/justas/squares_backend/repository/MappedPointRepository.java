@@ -0,0 +1,583 @@
+package com.justas.squares_backend.repository;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static com.justas.squares_backend.helpers.SquareKey.unpackX;
+import static com.justas.squares_backend.helpers.SquareKey.unpackY;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import com.justas.squares_backend.dto.PointOutputDTO;
+import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.exceptions.PointConstraints;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * {@link PointRepository} on memory-mapped files instead of the database,
+ * enabled with the {@code mapped} profile. Each dataset is stored in
+ * {@code squares.storage.directory} as a {@link MappedPointFile}, so points
+ * take 8 bytes on disk plus their index slots and almost nothing on the heap,
+ * and survive a restart without being imported again.
+ * <p>
+ * Ids combine the dataset's store number (upper 32 bits) with the point's
+ * record number + 1, so they are unique across datasets and increase in
+ * insertion order within one. Lists returned by {@link #findByDataset} are
+ * views that create each {@link Point} when it is read, so loading a square
+ * index never holds all points as entities at once.
+ * <p>
+ * There is no coordinate index: box queries, box deletes and pages scan every
+ * record of the dataset in id order, so they cost O(records) however few
+ * points match, in exchange for 8 bytes per point and no index to maintain on
+ * writes. Pages in id order stop once they are full; any other sort collects
+ * and sorts all matches first.
+ * <p>
+ * Duplicates raise {@link DataIntegrityViolationException} like the unique
+ * constraint does, and a batch is only written if none of its points is a
+ * duplicate. Records are never rewritten, so saving a changed point that
+ * already has an id stores it under a new id. Writes reach the page cache
+ * immediately; deletes and the flushing save methods also force them to disk
+ * before returning. Writes ignore the surrounding transaction, so the service
+ * updates the square index right after them instead of on commit.
+ */
+@Repository
+@Primary
+@Profile("mapped")
+public class MappedPointRepository implements PointRepository {
+
+    private static final String EXTENSION = ".points";
+    private static final Comparator<Point> BY_ID = Comparator.comparing(Point::getId);
+
+    private final Path directory;
+    private final Map<String, MappedPointFile> files = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedPointFile> stores = new ConcurrentHashMap<>();
+
+    public MappedPointRepository(@Value("${squares.storage.directory}") String directory) {
+        this.directory = Path.of(directory);
+        try {
+            Files.createDirectories(this.directory);
+            try (Stream<Path> existing = Files.list(this.directory)) {
+                existing.map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(EXTENSION))
+                        .map(name -> name.substring(0, name.length() - EXTENSION.length()))
+                        .forEach(dataset -> register(MappedPointFile.open(this.directory, dataset)));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open point store directory " + directory, ex);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        files.values().forEach(MappedPointFile::close);
+    }
+
+    // ------------------------------------------------------------
+    // Queries of PointRepository
+
+    @Override
+    public Optional<Point> findByDatasetAndXAndY(String dataset, int x, int y) {
+        MappedPointFile file = files.get(dataset);
+        if (file == null) {
+            return Optional.empty();
+        }
+        int record = file.find(x, y);
+        return record < 0 ? Optional.empty() : Optional.of(point(file, record));
+    }
+
+    @Override
+    public List<Point> findByDataset(String dataset) {
+        MappedPointFile file = files.get(dataset);
+        return file == null ? List.of() : new PointView(file);
+    }
+
+    @Override
+    public boolean existsByDataset(String dataset) {
+        MappedPointFile file = files.get(dataset);
+        return file != null && file.size() > 0;
+    }
+
+    @Override
+    public List<String> findDatasets() {
+        return files.entrySet().stream()
+                .filter(entry -> entry.getValue().size() > 0)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    @Override
+    public List<Point> findByDatasetAndXBetweenAndYBetween(String dataset, int minX, int maxX, int minY, int maxY) {
+        return findInBox(dataset, minX, maxX, minY, maxY, 0, Pageable.unpaged());
+    }
+
+    @Override
+    public List<Point> findByDatasetAndXBetweenAndYBetween(
+            String dataset, int minX, int maxX, int minY, int maxY, Pageable pageable) {
+        return findInBox(dataset, minX, maxX, minY, maxY, 0, pageable);
+    }
+
+    @Override
+    public List<Point> findByDatasetAndXBetweenAndYBetweenAndIdGreaterThan(
+            String dataset, int minX, int maxX, int minY, int maxY, long afterId, Pageable pageable) {
+        MappedPointFile file = files.get(dataset);
+        if (file == null) {
+            return List.of();
+        }
+
+        long first = storeBase(file);
+        int from = afterId < first ? 0 : (int) Math.min(Integer.MAX_VALUE, afterId - first);
+        return findInBox(dataset, minX, maxX, minY, maxY, from, pageable);
+    }
+
+    @Override
+    public Stream<PointOutputDTO> streamByDataset(String dataset) {
+        MappedPointFile file = files.get(dataset);
+        if (file == null) {
+            return Stream.empty();
+        }
+
+        long[] live = file.liveBits();
+        return IntStream.range(0, file.records())
+                .filter(record -> isSet(live, record))
+                .mapToObj(record -> {
+                    long packed = file.packed(record);
+                    return new PointOutputDTO(id(file, record), unpackX(packed), unpackY(packed));
+                });
+    }
+
+    /**
+     * Points of {@code dataset} inside the box with a record of at least
+     * {@code from}, one page of them in the order of {@code pageable}.
+     */
+    private List<Point> findInBox(
+            String dataset, int minX, int maxX, int minY, int maxY, int from, Pageable pageable) {
+        MappedPointFile file = files.get(dataset);
+        if (file == null) {
+            return List.of();
+        }
+
+        long skip = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        Sort sort = pageable.getSort();
+        if (isIdOrder(sort)) {
+            return scanBox(file, minX, maxX, minY, maxY, from, skip, limit);
+        }
+
+        // Other orders need every match before the first page is known
+        List<Point> found = scanBox(file, minX, maxX, minY, maxY, from, 0, Integer.MAX_VALUE);
+        found.sort(comparator(sort));
+        int start = (int) Math.min(found.size(), skip);
+        int end = (int) Math.min(found.size(), start + (long) limit);
+        return new ArrayList<>(found.subList(start, end));
+    }
+
+    /**
+     * Points of {@code file} inside the box with a record of at least
+     * {@code from}, in id order, skipping the first {@code skip} matches.
+     */
+    private static List<Point> scanBox(
+            MappedPointFile file, int minX, int maxX, int minY, int maxY, int from, long skip, int limit) {
+        List<Point> found = new ArrayList<>(Math.min(limit, 1024));
+
+        int records = file.records();
+        long[] live = file.liveBits();
+        for (int record = from; record < records && found.size() < limit; record++) {
+            if (!isSet(live, record)) {
+                continue;
+            }
+            long packed = file.packed(record);
+            int x = unpackX(packed);
+            int y = unpackY(packed);
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            found.add(point(file, record));
+        }
+        return found;
+    }
+
+    // ------------------------------------------------------------
+    // Writes
+
+    @Override
+    public <S extends Point> S save(S entity) {
+        return saveAll(List.of(entity)).get(0);
+    }
+
+    @Override
+    public <S extends Point> S saveAndFlush(S entity) {
+        S saved = save(entity);
+        flush(saved.getDataset());
+        return saved;
+    }
+
+    @Override
+    public <S extends Point> List<S> saveAllAndFlush(Iterable<S> entities) {
+        List<S> saved = saveAll(entities);
+        flush();
+        return saved;
+    }
+
+    /**
+     * Mapped writes do not take part in transactions: they are visible as
+     * soon as they return and a rollback keeps them.
+     */
+    @Override
+    public boolean writesThrough() {
+        return true;
+    }
+
+    /**
+     * Stores the points of each dataset as one batch: if any of them is
+     * already stored, or repeats within the batch, none of that dataset's
+     * points are written.
+     * <p>
+     * A point with the id of a stored point replaces it. Its old record is
+     * deleted in the same step as the batch is appended, so a point may keep
+     * its coordinates or take those of another replaced point, and it is
+     * returned with its new id. A point saved unchanged keeps its id.
+     */
+    private <S extends Point> List<S> saveAll(Iterable<S> entities) {
+        Map<String, Batch<S>> byDataset = new LinkedHashMap<>();
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            Batch<S> batch = byDataset.computeIfAbsent(entity.getDataset(), dataset -> new Batch<>());
+            MappedPointFile stored = entity.getId() == null ? null : stores.get(storeOf(entity.getId()));
+            int record = entity.getId() == null ? -1 : recordOf(entity.getId());
+
+            if (stored != null && stored.isLive(record)) {
+                if (!stored.dataset().equals(entity.getDataset())) {
+                    batch.movedFrom.add(entity.getId());
+                } else if (stored.packed(record) != pack(entity.getX(), entity.getY())) {
+                    batch.replaced.add(record);
+                } else {
+                    saved.add(entity);
+                    continue;
+                }
+            }
+            batch.points.add(entity);
+        }
+
+        for (Map.Entry<String, Batch<S>> entry : byDataset.entrySet()) {
+            Batch<S> batch = entry.getValue();
+            if (batch.points.isEmpty()) {
+                continue;
+            }
+            MappedPointFile file = fileFor(entry.getKey());
+
+            long[] packed = new long[batch.points.size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = pack(batch.points.get(i).getX(), batch.points.get(i).getY());
+            }
+
+            int[] replaced = batch.replaced.stream().mapToInt(Integer::intValue).toArray();
+            int[] records = file.replaceAll(replaced, packed);
+            if (records == null) {
+                throw new DataIntegrityViolationException(
+                        "Duplicate point in dataset " + entry.getKey() + " violates "
+                                + PointConstraints.UNIQUE_COORDINATES + " (dataset, x, y)");
+            }
+            // Points moved here from another dataset leave it only once they are stored
+            batch.movedFrom.forEach(this::removeById);
+            for (int i = 0; i < records.length; i++) {
+                batch.points.get(i).setId(id(file, records[i]));
+            }
+            saved.addAll(batch.points);
+        }
+        return saved;
+    }
+
+    // Moved points touch a dataset other than their own, so every file is forced
+    private void flush() {
+        files.values().forEach(MappedPointFile::force);
+    }
+
+    private void flush(String dataset) {
+        MappedPointFile file = files.get(dataset);
+        if (file != null) {
+            file.force();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Deletes
+
+    @Override
+    public void delete(Point entity) {
+        MappedPointFile file = remove(entity);
+        if (file != null) {
+            file.force();
+        }
+    }
+
+    @Override
+    public int deleteByCoordinates(String dataset, int[] xs, int[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        MappedPointFile file = files.get(dataset);
+        if (file == null) {
+            return 0;
+        }
+
+        int[] records = new int[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            records[i] = file.find(xs[i], ys[i]);
+        }
+        int deleted = file.removeAll(records);
+        file.force();
+        return deleted;
+    }
+
+    @Override
+    public int deleteInBox(String dataset, int minX, int maxX, int minY, int maxY) {
+        MappedPointFile file = files.get(dataset);
+        if (file == null) {
+            return 0;
+        }
+
+        int records = file.records();
+        long[] live = file.liveBits();
+        int[] inBox = new int[Math.min(records, 1024)];
+        int found = 0;
+        for (int record = 0; record < records; record++) {
+            if (!isSet(live, record)) {
+                continue;
+            }
+            long packed = file.packed(record);
+            int x = unpackX(packed);
+            int y = unpackY(packed);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                if (found == inBox.length) {
+                    inBox = Arrays.copyOf(inBox, found * 2);
+                }
+                inBox[found++] = record;
+            }
+        }
+
+        // Points deleted concurrently since the snapshot are skipped by removeAll
+        int deleted = file.removeAll(Arrays.copyOf(inBox, found));
+        file.force();
+        return deleted;
+    }
+
+    /**
+     * Deletes {@code entity} without forcing it to disk.
+     *
+     * @return the file it was deleted from, or null if there is none
+     */
+    private MappedPointFile remove(Point entity) {
+        if (entity.getId() != null) {
+            return removeById(entity.getId());
+        }
+        MappedPointFile file = files.get(entity.getDataset());
+        if (file != null) {
+            file.remove(file.find(entity.getX(), entity.getY()));
+        }
+        return file;
+    }
+
+    private MappedPointFile removeById(Long id) {
+        MappedPointFile file = stores.get(storeOf(id));
+        if (file != null) {
+            file.remove(recordOf(id));
+        }
+        return file;
+    }
+
+    // ------------------------------------------------------------
+    // Reads by id and across datasets
+
+    @Override
+    public Optional<Point> findById(Long id) {
+        MappedPointFile file = stores.get(storeOf(id));
+        int record = recordOf(id);
+        if (file == null || record < 0 || record >= file.records() || !file.isLive(record)) {
+            return Optional.empty();
+        }
+        return Optional.of(point(file, record));
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (MappedPointFile file : files.values()) {
+            count += file.size();
+        }
+        return count;
+    }
+
+    // ------------------------------------------------------------
+
+    private MappedPointFile fileFor(String dataset) {
+        MappedPointFile file = files.get(dataset);
+        if (file != null) {
+            return file;
+        }
+
+        synchronized (this) {
+            return files.computeIfAbsent(dataset, name -> {
+                int store = stores.keySet().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+                MappedPointFile created = MappedPointFile.create(directory, name, store);
+                stores.put(store, created);
+                return created;
+            });
+        }
+    }
+
+    private void register(MappedPointFile file) {
+        if (stores.putIfAbsent(file.store(), file) != null) {
+            throw new IllegalStateException("Two point stores share store number " + file.store());
+        }
+        files.put(file.dataset(), file);
+    }
+
+    // Ids follow the records, so a scan yields this order without sorting
+    private static boolean isIdOrder(Sort sort) {
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return true;
+        }
+        Sort.Order first = orders.next();
+        return first.getProperty().equals("id") && first.isAscending();
+    }
+
+    private static Comparator<Point> comparator(Sort sort) {
+        Comparator<Point> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Point> next = switch (order.getProperty()) {
+                case "id" -> BY_ID;
+                case "dataset" -> Comparator.comparing(Point::getDataset);
+                case "x" -> Comparator.comparingInt(Point::getX);
+                case "y" -> Comparator.comparingInt(Point::getY);
+                default -> throw new IllegalArgumentException("Points cannot be sorted by " + order.getProperty());
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // Ties keep id order, as in an unsorted scan
+        return comparator.thenComparing(BY_ID);
+    }
+
+    private static Point point(MappedPointFile file, int record) {
+        long packed = file.packed(record);
+        Point point = new Point(file.dataset(), unpackX(packed), unpackY(packed));
+        point.setId(id(file, record));
+        return point;
+    }
+
+    private static long storeBase(MappedPointFile file) {
+        return (long) file.store() << 32;
+    }
+
+    private static long id(MappedPointFile file, int record) {
+        return storeBase(file) | (record + 1L);
+    }
+
+    private static int storeOf(long id) {
+        return (int) (id >>> 32);
+    }
+
+    private static int recordOf(long id) {
+        return (int) (id & 0xffff_ffffL) - 1;
+    }
+
+    private static boolean isSet(long[] bits, int record) {
+        int word = record >>> 6;
+        return word < bits.length && (bits[word] & (1L << record)) != 0;
+    }
+
+    /**
+     * Points of one dataset for {@link #saveAll}: those to append, records of
+     * the same file they replace and ids in other files they move away from.
+     */
+    private static final class Batch<S extends Point> {
+
+        private final List<S> points = new ArrayList<>();
+        private final List<Integer> replaced = new ArrayList<>();
+        private final List<Long> movedFrom = new ArrayList<>();
+    }
+
+    /**
+     * Snapshot of the live points of one file that creates each
+     * {@link Point} only when it is read. Records are never rewritten, so
+     * the view stays consistent while points are added or deleted.
+     */
+    private static final class PointView extends AbstractList<Point> implements RandomAccess {
+
+        private final MappedPointFile file;
+        private final int size;
+
+        // Records of the live points when some were deleted, otherwise null
+        private final int[] records;
+
+        PointView(MappedPointFile file) {
+            this.file = file;
+            int appended = file.records();
+            long[] live = file.liveBits();
+
+            int count = 0;
+            for (int record = 0; record < appended; record++) {
+                if (isSet(live, record)) {
+                    count++;
+                }
+            }
+
+            this.size = count;
+            if (count == appended) {
+                this.records = null;
+            } else {
+                this.records = new int[count];
+                int i = 0;
+                for (int record = 0; record < appended; record++) {
+                    if (isSet(live, record)) {
+                        records[i++] = record;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Point get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return point(file, records != null ? records[index] : index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.justas.squares_backend.repository;
+
+/**
+ * Deletes that Spring Data cannot derive as a single statement, mixed into
+ * {@link PointRepository}.
+ */
+public interface PointBulkDeletes {
+
+    /**
+     * Deletes the points of {@code dataset} at the coordinates
+     * ({@code xs[i]}, {@code ys[i]}) as batched statements in the caller's
+     * transaction. Coordinates without a stored point are ignored.
+     *
+     * @return number of points deleted
+     */
+    int deleteByCoordinates(String dataset, int[] xs, int[] ys);
+}
@@ -0,0 +1,62 @@
+package com.justas.squares_backend.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of {@link PointBulkDeletes} for the database-backed
+ * {@link PointRepository}. Each chunk of coordinates is sent as one JDBC
+ * batch, so deleting n points costs n / batch size round trips instead of a
+ * query and a delete per point. The table is the one created by the
+ * {@code V1__create_point} migration.
+ */
+class PointBulkDeletesImpl implements PointBulkDeletes {
+
+    private static final String DELETE = "delete from point where dataset = ? and x = ? and y = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    PointBulkDeletesImpl(
+            JdbcTemplate jdbcTemplate,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int deleteByCoordinates(String dataset, int[] xs, int[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+
+        int deleted = 0;
+        for (int from = 0; from < xs.length; from += batchSize) {
+            int offset = from;
+            int size = Math.min(batchSize, xs.length - from);
+            int[] counts = jdbcTemplate.batchUpdate(DELETE, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    statement.setString(1, dataset);
+                    statement.setInt(2, xs[offset + i]);
+                    statement.setInt(3, ys[offset + i]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+
+            for (int count : counts) {
+                deleted += Math.max(count, 0);
+            }
+        }
+        return deleted;
+    }
+}
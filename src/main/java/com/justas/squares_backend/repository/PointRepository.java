@@ -1,15 +1,79 @@
 package com.justas.squares_backend.repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
+import com.justas.squares_backend.dto.PointOutputDTO;
 import com.justas.squares_backend.entities.Point;
 
-public interface PointRepository extends JpaRepository<Point, Long>{
-	
-	Optional<Point> findByXAndY(int x, int y);
+import jakarta.persistence.QueryHint;
 
-	boolean existsByXAndY(int x, int y);
+/**
+ * The points of all datasets. Only the operations the application uses are
+ * exposed, rather than all of {@code JpaRepository}, so that
+ * {@link MappedPointRepository} can implement every one of them; the CRUD
+ * methods below are served by Spring Data's default implementation.
+ */
+public interface PointRepository extends Repository<Point, Long>, PointBulkDeletes {
+
+	<S extends Point> S save(S entity);
+
+	<S extends Point> S saveAndFlush(S entity);
+
+	<S extends Point> List<S> saveAllAndFlush(Iterable<S> entities);
+
+	Optional<Point> findById(Long id);
+
+	long count();
+
+	void delete(Point entity);
+
+	Optional<Point> findByDatasetAndXAndY(String dataset, int x, int y);
+
+	List<Point> findByDataset(String dataset);
+
+	@Query("select distinct p.dataset from Point p order by p.dataset")
+	List<String> findDatasets();
+
+	boolean existsByDataset(String dataset);
+
+	List<Point> findByDatasetAndXBetweenAndYBetween(String dataset, int minX, int maxX, int minY, int maxY);
+
+	List<Point> findByDatasetAndXBetweenAndYBetween(
+			String dataset, int minX, int maxX, int minY, int maxY, Pageable pageable);
+
+	List<Point> findByDatasetAndXBetweenAndYBetweenAndIdGreaterThan(
+			String dataset, int minX, int maxX, int minY, int maxY, long afterId, Pageable pageable);
+
+	// One set-based statement; the persistence context holds no points in the deleting transaction
+	@Modifying
+	@Query("delete from Point p where p.dataset = :dataset "
+			+ "and p.x between :minX and :maxX and p.y between :minY and :maxY")
+	int deleteInBox(@Param("dataset") String dataset, @Param("minX") int minX, @Param("maxX") int maxX,
+			@Param("minY") int minY, @Param("maxY") int maxY);
+
+	// DTO projection, so streamed rows never pile up in the persistence context
+	@QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+	@Query("select new com.justas.squares_backend.dto.PointOutputDTO(p.id, p.x, p.y) from Point p "
+			+ "where p.dataset = :dataset order by p.id")
+	Stream<PointOutputDTO> streamByDataset(@Param("dataset") String dataset);
+
+	/**
+	 * Whether writes are permanent as soon as they return, whatever becomes
+	 * of the surrounding transaction. The database only applies them on
+	 * commit; a store outside of it, like {@link MappedPointRepository},
+	 * writes through.
+	 */
+	default boolean writesThrough() {
+		return false;
+	}
 
 }
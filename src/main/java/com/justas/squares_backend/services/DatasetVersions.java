@@ -0,0 +1,37 @@
+package com.justas.squares_backend.services;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity tags for responses derived from one dataset. A tag carries the
+ * dataset's {@link SquareIndex#version()}, which {@link PointService} bumps
+ * with every mutation and which {@link SquareIndexRegistry} seeds from its
+ * start time, so tags from before a restart never match again.
+ * <p>
+ * Tags are weak: the same version may be sent gzip-compressed or not, and
+ * Tomcat does not compress responses carrying a strong tag. Reading a tag
+ * neither loads the index nor scans anything, so a conditional request
+ * for unchanged data is answered with {@code 304} before any detection runs.
+ */
+@Component
+public class DatasetVersions {
+
+    private final SquareIndexRegistry squareIndexes;
+
+    public DatasetVersions(SquareIndexRegistry squareIndexes) {
+        this.squareIndexes = squareIndexes;
+    }
+
+    public long version(String dataset) {
+        return squareIndexes.version(dataset);
+    }
+
+    /**
+     * The tag of the current state of {@code dataset} in the representation
+     * {@code variant}, e.g. the media type, so that different encodings of the
+     * same data never share a tag.
+     */
+    public String etag(String dataset, String variant) {
+        return "W/\"" + version(dataset) + "-" + variant + "\"";
+    }
+}
@@ -0,0 +1,94 @@
+package com.justas.squares_backend.services;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.justas.squares_backend.repository.PointRepository;
+
+/**
+ * Loads the {@link SquareIndex} of every stored dataset in the background
+ * once the application has started, so the first requests after a restart
+ * do not each pay for a full scan.
+ * <p>
+ * The application accepts requests during the warm-up, but this indicator
+ * reports {@code OUT_OF_SERVICE} until every index is loaded. It is part of
+ * the readiness group, so {@code /actuator/health/readiness} only turns
+ * {@code UP} once the indexes are hot. A failed warm-up reports
+ * {@code DOWN}; the indexes it missed are still loaded on first use.
+ */
+@Component
+public class IndexWarmup implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexWarmup.class);
+
+    private final PointRepository repository;
+    private final SquareIndexRegistry squareIndexes;
+    private final boolean enabled;
+
+    private volatile Health health = Health.outOfService().withDetail("status", "pending").build();
+
+    public IndexWarmup(
+            PointRepository repository,
+            SquareIndexRegistry squareIndexes,
+            @Value("${squares.warmup.enabled:true}") boolean enabled
+    ) {
+        this.repository = repository;
+        this.squareIndexes = squareIndexes;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            health = Health.up().withDetail("status", "disabled").build();
+            return;
+        }
+
+        Thread thread = new Thread(this::warmUp, "square-index-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Loads the indexes of all stored datasets on the calling thread.
+     */
+    public void warmUp() {
+        long started = System.nanoTime();
+        try {
+            List<String> datasets = repository.findDatasets();
+            for (int i = 0; i < datasets.size(); i++) {
+                health = Health.outOfService()
+                        .withDetail("status", "loading")
+                        .withDetail("loaded", i)
+                        .withDetail("datasets", datasets.size())
+                        .build();
+                squareIndexes.forDataset(datasets.get(i)).preload();
+            }
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            log.info("Loaded the square indexes of {} datasets in {} ms", datasets.size(), millis);
+            health = Health.up()
+                    .withDetail("status", "loaded")
+                    .withDetail("datasets", datasets.size())
+                    .withDetail("millis", millis)
+                    .build();
+        } catch (RuntimeException ex) {
+            log.error("Square index warm-up failed", ex);
+            health = Health.down(ex).withDetail("status", "failed").build();
+        }
+    }
+
+    @Override
+    public Health health() {
+        return health;
+    }
+}
@@ -0,0 +1,119 @@
+package com.justas.squares_backend.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justas.squares_backend.dto.ImportSummaryDTO;
+import com.justas.squares_backend.dto.PointInputDTO;
+import com.justas.squares_backend.exceptions.DuplicatePointException;
+import com.justas.squares_backend.helpers.BinaryCodec;
+import com.justas.squares_backend.helpers.PointStreamReader;
+
+/**
+ * Imports large point uploads into the store. Streamed request bodies and
+ * skip-existing lists are stored chunk by chunk, skipping points that are
+ * already stored instead of failing; binary uploads are all-or-nothing like
+ * a JSON list.
+ */
+@Service
+public class PointImportService {
+
+    // Attempts per chunk before a conflict with concurrent imports is reported
+    static final int CHUNK_ATTEMPTS = 3;
+
+    private final PointService pointService;
+    private final PointStreamReader reader;
+    private final int chunkSize;
+
+    public PointImportService(
+            PointService pointService,
+            ObjectMapper objectMapper,
+            @Value("${squares.import.chunk-size:1000}") int chunkSize
+    ) {
+        this.pointService = pointService;
+        this.reader = new PointStreamReader(objectMapper.getFactory());
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every valid point of the stream into {@code dataset}. Malformed
+     * records and points that already exist are counted as rejected; each
+     * chunk is committed on its own.
+     */
+    public ImportSummaryDTO importStream(String dataset, InputStream input, PointStreamReader.Format format)
+            throws IOException {
+        long start = System.nanoTime();
+        AtomicLong received = new AtomicLong();
+        AtomicLong imported = new AtomicLong();
+
+        long malformed = reader.read(input, format, chunkSize, chunk -> {
+            received.addAndGet(chunk.size());
+            imported.addAndGet(importChunk(dataset, chunk));
+        });
+
+        long rejected = malformed + received.get() - imported.get();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        return new ImportSummaryDTO(imported.get(), rejected, elapsedMillis);
+    }
+
+    /**
+     * Imports points sent in the {@link BinaryCodec} format with the same
+     * all-or-nothing semantics as a JSON list, but without parsing JSON or
+     * returning every stored point.
+     */
+    public ImportSummaryDTO importBinary(String dataset, InputStream input) throws IOException {
+        long start = System.nanoTime();
+        List<PointInputDTO> points = BinaryCodec.readPoints(input);
+        pointService.addPoints(dataset, points);
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new ImportSummaryDTO(points.size(), 0, elapsedMillis);
+    }
+
+    /**
+     * Imports the points of {@code points} that are not stored yet, so a
+     * batch that was only partially applied can simply be sent again. Points
+     * that already exist, or repeat within the list, are skipped and counted
+     * as rejected; each chunk is committed on its own. Overlapping imports
+     * running at the same time neither fail nor store a point twice.
+     */
+    public ImportSummaryDTO importNew(String dataset, List<PointInputDTO> points) {
+        long start = System.nanoTime();
+        long imported = 0;
+
+        for (int from = 0; from < points.size(); from += chunkSize) {
+            List<PointInputDTO> chunk = points.subList(from, Math.min(points.size(), from + chunkSize));
+            imported += importChunk(dataset, chunk);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new ImportSummaryDTO(imported, points.size() - imported, elapsedMillis);
+    }
+
+    /**
+     * Stores one chunk, skipping the points that already exist. A point
+     * another request inserts between that check and this insert trips the
+     * unique constraint and rolls the chunk back; the chunk is then retried
+     * against the database, where the competing write has become visible.
+     */
+    private int importChunk(String dataset, List<PointInputDTO> chunk) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attempt == 1
+                        ? pointService.importChunk(dataset, chunk)
+                        : pointService.importChunkCheckingStore(dataset, chunk);
+            } catch (DuplicatePointException ex) {
+                if (attempt == CHUNK_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+}
@@ -2,55 +2,197 @@ package com.justas.squares_backend.services;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.justas.squares_backend.dto.DeleteSummaryDTO;
 import com.justas.squares_backend.dto.PointInputDTO;
 import com.justas.squares_backend.dto.PointOutputDTO;
 import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.exceptions.DuplicatePointException;
+import com.justas.squares_backend.exceptions.PointConstraints;
 import com.justas.squares_backend.exceptions.PointNotFoundException;
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareKey;
 import com.justas.squares_backend.mappers.PointMapper;
 import com.justas.squares_backend.repository.PointRepository;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class PointService {
 	
+	static final int DEFAULT_PAGE_SIZE = 100;
+	static final int MAX_PAGE_SIZE = 10_000;
+	private static final Sort BY_ID = Sort.by("id");
+	
 	private final PointRepository repository;
+	private final SquareIndexRegistry squareIndexes;
+	private final SquareResultCache resultCache;
+	private final Timer batchImports;
+	private final Timer chunkImports;
+	private final DistributionSummary batchSizes;
+	private final DistributionSummary chunkSizes;
 	
-	public PointService(PointRepository repository) {
+	public PointService(
+			PointRepository repository,
+			SquareIndexRegistry squareIndexes,
+			SquareResultCache resultCache,
+			MeterRegistry registry
+	) {
 		this.repository = repository;
+		this.squareIndexes = squareIndexes;
+		this.resultCache = resultCache;
+		this.batchImports = importTimer(registry, "batch");
+		this.chunkImports = importTimer(registry, "stream");
+		this.batchSizes = importSize(registry, "batch");
+		this.chunkSizes = importSize(registry, "stream");
+	}
+
+	// "batch" is an all-or-nothing addPoints call, "stream" one chunk of a streamed import
+	private static Timer importTimer(MeterRegistry registry, String mode) {
+		return Timer.builder("points.import")
+				.description("Duration of storing and indexing one import batch")
+				.tag("mode", mode)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	private static DistributionSummary importSize(MeterRegistry registry, String mode) {
+		return DistributionSummary.builder("points.import.size")
+				.description("Points received per import batch")
+				.baseUnit("points")
+				.tag("mode", mode)
+				.register(registry);
 	}
 	
-	public PointOutputDTO addPoint(PointInputDTO input) {
+	/**
+	 * Inserts the point and lets the unique (dataset, x, y) constraint reject
+	 * duplicates, so concurrent callers cannot both store the same point.
+	 */
+	public PointOutputDTO addPoint(String dataset, PointInputDTO input) {
 
-        if (repository.existsByXAndY(input.x(), input.y())) {
-            throw new IllegalStateException(
+        Point saved;
+        try {
+            saved = repository.saveAndFlush(PointMapper.toEntity(dataset, input));
+        } catch (DataIntegrityViolationException ex) {
+            if (!PointConstraints.isDuplicatePoint(ex)) {
+                throw ex;
+            }
+            throw new DuplicatePointException(
                     "Duplicates not allowed. Duplicate point (" + input.x() + ", " + input.y() + ") already exists"
             );
         }
 
-        Point saved = repository.save(PointMapper.toEntity(input));
+        afterCommit(() -> {
+            SquareIndex squareIndex = squareIndexes.forDataset(dataset);
+            committed(squareIndex, squareIndex.pointAdded(saved.getX(), saved.getY()));
+            resultCache.invalidate(dataset);
+        });
         return PointMapper.toOutputDTO(saved);
     }
 
-	public PointOutputDTO deletePointByCoordinates(PointInputDTO input) {
+	public PointOutputDTO deletePointByCoordinates(String dataset, PointInputDTO input) {
 
-	    Point point = repository.findByXAndY(input.x(), input.y())
+	    Point point = repository.findByDatasetAndXAndY(dataset, input.x(), input.y())
 	            .orElseThrow(() -> new PointNotFoundException(input));
 
 	    repository.delete(point);
+	    afterCommit(() -> {
+	        SquareIndex squareIndex = squareIndexes.forDataset(dataset);
+	        committed(squareIndex, squareIndex.pointRemoved(point.getX(), point.getY()));
+	        resultCache.invalidate(dataset);
+	    });
 
 	    return PointMapper.toOutputDTO(point);
 	}
 
+    /**
+     * Deletes the listed points that exist, in batched statements inside one
+     * transaction. Points that are not stored are ignored. The square index
+     * only drops the squares of the removed points.
+     *
+     * @return number of points deleted
+     */
+    @Transactional
+    public DeleteSummaryDTO deletePoints(String dataset, List<PointInputDTO> points) {
+
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i).x();
+            ys[i] = points.get(i).y();
+        }
+
+        int deleted = repository.deleteByCoordinates(dataset, xs, ys);
+        if (deleted > 0) {
+            afterCommit(() -> {
+                SquareIndex squareIndex = squareIndexes.forDataset(dataset);
+                committed(squareIndex, squareIndex.pointsRemoved(xs, ys));
+                resultCache.invalidate(dataset);
+            });
+        }
+        return new DeleteSummaryDTO(deleted);
+    }
+
+    /**
+     * Deletes every point of {@code dataset} inside {@code region} with one
+     * statement. At least one bound is required, so a missing query string
+     * cannot wipe the whole dataset.
+     */
+    @Transactional
+    public DeleteSummaryDTO deletePointsInRegion(String dataset, Region region) {
+
+        if (region.isUnbounded()) {
+            throw new IllegalArgumentException("Invalid region: deleting by region needs at least one bound");
+        }
+        if (!region.isValid()) {
+            throw new IllegalArgumentException("Invalid region: min bound must not exceed max bound");
+        }
+
+        int deleted = repository.deleteInBox(dataset, region.fromX(), region.toX(), region.fromY(), region.toY());
+        if (deleted > 0) {
+            afterCommit(() -> {
+                SquareIndex squareIndex = squareIndexes.forDataset(dataset);
+                committed(squareIndex, squareIndex.pointsRemovedIn(region));
+                resultCache.invalidate(dataset);
+            });
+        }
+        return new DeleteSummaryDTO(deleted);
+    }
+
 
 
-    public List<PointOutputDTO> addPoints(List<PointInputDTO> pointInputDTOList) {
+    /**
+     * Imports all points or none. Duplicates are checked against the in-memory
+     * coordinate index and within the payload itself, and the rows are then
+     * written in JDBC batches inside one transaction.
+     */
+    @Transactional
+    public List<PointOutputDTO> addPoints(String dataset, List<PointInputDTO> pointInputDTOList) {
 
+        long started = System.nanoTime();
+        batchSizes.record(pointInputDTOList.size());
+        SquareIndex squareIndex = squareIndexes.forDataset(dataset);
         List<PointInputDTO> duplicates = new ArrayList<>();
+        LongHashSet payload = new LongHashSet(pointInputDTOList.size());
 
         for (PointInputDTO pointInputDTO : pointInputDTOList) {
-            if (repository.existsByXAndY(pointInputDTO.x(), pointInputDTO.y())) {
+            boolean repeated = !payload.add(SquareKey.pack(pointInputDTO.x(), pointInputDTO.y()));
+            if (repeated || squareIndex.containsPoint(pointInputDTO.x(), pointInputDTO.y())) {
                 duplicates.add(pointInputDTO);
             }
         }
@@ -61,10 +203,15 @@ public class PointService {
             );
         }
 
-        List<Point> saved = pointInputDTOList.stream()
-                .map(PointMapper::toEntity)
-                .map(repository::save)
-                .toList();
+        List<Point> saved = saveAllAndFlush(pointInputDTOList.stream()
+                .map(pointInputDTO -> PointMapper.toEntity(dataset, pointInputDTO))
+                .toList());
+
+        afterCommit(() -> {
+            indexSaved(squareIndex, saved);
+            resultCache.invalidate(dataset);
+        });
+        batchImports.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
 
         return saved.stream()
                 .map(PointMapper::toOutputDTO)
@@ -73,10 +220,204 @@ public class PointService {
 
 
 
-    public List<PointOutputDTO> getAllPoints() {
-        return repository.findAll().stream()
+    /**
+     * Stores one chunk of a streamed import. Unlike {@link #addPoints(String, List)},
+     * points that already exist, or repeat within the chunk, are skipped
+     * rather than failing the whole chunk.
+     *
+     * @return number of points stored
+     */
+    @Transactional
+    public int importChunk(String dataset, List<PointInputDTO> chunk) {
+        SquareIndex squareIndex = squareIndexes.forDataset(dataset);
+        return importChunk(dataset, chunk, squareIndex, point -> squareIndex.containsPoint(point.x(), point.y()));
+    }
+
+    /**
+     * Like {@link #importChunk(String, List)}, but checks every point against
+     * the repository instead of the square index, which only learns about a
+     * write once it has committed. Used to retry a chunk that collided with
+     * a concurrent insert of the same points.
+     *
+     * @return number of points stored
+     */
+    @Transactional
+    public int importChunkCheckingStore(String dataset, List<PointInputDTO> chunk) {
+        LongHashSet stored = storedIn(dataset, chunk);
+        return importChunk(dataset, chunk, squareIndexes.forDataset(dataset),
+                point -> stored.contains(SquareKey.pack(point.x(), point.y())));
+    }
+
+    /**
+     * The stored points of {@code dataset} inside the bounding box of
+     * {@code chunk}, fetched with one query instead of one per point.
+     */
+    private LongHashSet storedIn(String dataset, List<PointInputDTO> chunk) {
+        LongHashSet stored = new LongHashSet();
+        if (chunk.isEmpty()) {
+            return stored;
+        }
+
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (PointInputDTO point : chunk) {
+            minX = Math.min(minX, point.x());
+            maxX = Math.max(maxX, point.x());
+            minY = Math.min(minY, point.y());
+            maxY = Math.max(maxY, point.y());
+        }
+
+        for (Point point : repository.findByDatasetAndXBetweenAndYBetween(dataset, minX, maxX, minY, maxY)) {
+            stored.add(SquareKey.pack(point.getX(), point.getY()));
+        }
+        return stored;
+    }
+
+    private int importChunk(
+            String dataset,
+            List<PointInputDTO> chunk,
+            SquareIndex squareIndex,
+            Predicate<PointInputDTO> stored
+    ) {
+
+        long started = System.nanoTime();
+        chunkSizes.record(chunk.size());
+        LongHashSet seen = new LongHashSet(chunk.size());
+        List<Point> fresh = new ArrayList<>(chunk.size());
+
+        for (PointInputDTO pointInputDTO : chunk) {
+            if (seen.add(SquareKey.pack(pointInputDTO.x(), pointInputDTO.y())) && !stored.test(pointInputDTO)) {
+                fresh.add(PointMapper.toEntity(dataset, pointInputDTO));
+            }
+        }
+
+        if (fresh.isEmpty()) {
+            chunkImports.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return 0;
+        }
+
+        List<Point> saved = saveAllAndFlush(fresh);
+        afterCommit(() -> {
+            indexSaved(squareIndex, saved);
+            resultCache.invalidate(dataset);
+        });
+        chunkImports.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        return saved.size();
+    }
+
+
+
+    public List<PointOutputDTO> getAllPoints(String dataset) {
+        return repository.findByDataset(dataset).stream()
+                .map(PointMapper::toOutputDTO)
+                .toList();
+    }
+
+    /**
+     * Returns one page of the points of {@code dataset} inside {@code region},
+     * ordered by id.
+     * Pages are addressed either by number or, for stable iteration over a
+     * changing table, by the id of the last point already received.
+     */
+    public List<PointOutputDTO> findPoints(String dataset, Region region, Integer page, Integer size, Long afterId) {
+
+        if (!region.isValid()) {
+            throw new IllegalArgumentException("Invalid region: min bound must not exceed max bound");
+        }
+        if (page != null && afterId != null) {
+            throw new IllegalArgumentException("Use either page or afterId, not both");
+        }
+
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE || (page != null && page < 0)) {
+            throw new IllegalArgumentException(
+                    "Invalid page: size must be between 1 and " + MAX_PAGE_SIZE + " and page must not be negative"
+            );
+        }
+
+        List<Point> points = afterId != null
+                ? repository.findByDatasetAndXBetweenAndYBetweenAndIdGreaterThan(
+                        dataset, region.fromX(), region.toX(), region.fromY(), region.toY(),
+                        afterId, PageRequest.of(0, pageSize, BY_ID))
+                : repository.findByDatasetAndXBetweenAndYBetween(
+                        dataset, region.fromX(), region.toX(), region.fromY(), region.toY(),
+                        PageRequest.of(page != null ? page : 0, pageSize, BY_ID));
+
+        return points.stream()
                 .map(PointMapper::toOutputDTO)
                 .toList();
     }
 
+    /**
+     * Passes every point of {@code dataset} to {@code consumer} as the
+     * database cursor yields it, without collecting them into a list first.
+     */
+    @Transactional(readOnly = true)
+    public void streamPoints(String dataset, Consumer<PointOutputDTO> consumer) {
+        try (Stream<PointOutputDTO> points = repository.streamByDataset(dataset)) {
+            points.forEach(consumer);
+        }
+    }
+
+    /**
+     * Writes the batch; a point inserted concurrently by another request
+     * trips the unique constraint and rejects the batch as a duplicate.
+     */
+    private List<Point> saveAllAndFlush(List<Point> points) {
+        try {
+            return repository.saveAllAndFlush(points);
+        } catch (DataIntegrityViolationException ex) {
+            if (!PointConstraints.isDuplicatePoint(ex)) {
+                throw ex;
+            }
+            throw new DuplicatePointException(
+                    "Duplicates not allowed. One or more points were stored concurrently by another request"
+            );
+        }
+    }
+
+    /**
+     * Runs {@code update} of the square index and result cache once the
+     * current transaction has committed. Updating them earlier would let a
+     * concurrent reader see the new version while the database still returns
+     * the old rows, and a failed commit would leave them describing data that
+     * was never stored. Outside a transaction, or when the repository
+     * {@linkplain PointRepository#writesThrough writes through}, the write is
+     * already permanent and a rollback would not undo it, so the update runs
+     * right away.
+     */
+    private void afterCommit(Runnable update) {
+        if (repository.writesThrough() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    private void indexSaved(SquareIndex squareIndex, List<Point> saved) {
+        int[] xs = new int[saved.size()];
+        int[] ys = new int[saved.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = saved.get(i).getX();
+            ys[i] = saved.get(i).getY();
+        }
+        committed(squareIndex, squareIndex.pointsAdded(xs, ys));
+    }
+
+    /**
+     * Every committed write has to move the version, even when the index
+     * had already loaded it from the repository and so did not change.
+     */
+    private static void committed(SquareIndex squareIndex, boolean indexChanged) {
+        if (!indexChanged) {
+            squareIndex.advanceVersion();
+        }
+    }
+
 }
@@ -0,0 +1,91 @@
+package com.justas.squares_backend.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+
+/**
+ * Bounded history of the squares added to and removed from one
+ * {@link SquareIndex}, each entry tagged with the index version the change
+ * produced. Once more than {@code capacity} entries are held the oldest are
+ * dropped, and versions before them can no longer be answered.
+ * <p>
+ * Not thread-safe; used under the lock of its index.
+ */
+class SquareChangeLog {
+
+    private record Change(long version, SquareKey square, boolean added) {}
+
+    private final int capacity;
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+
+    // Oldest version the log can report changes since
+    private long floor;
+
+    SquareChangeLog(int capacity, long floor) {
+        this.capacity = capacity;
+        this.floor = floor;
+    }
+
+    void added(long version, List<SquareKey> squares) {
+        squares.forEach(square -> append(new Change(version, square, true)));
+    }
+
+    void removed(long version, List<SquareKey> squares) {
+        squares.forEach(square -> append(new Change(version, square, false)));
+    }
+
+    /**
+     * Whether the changes after {@code since} up to {@code current} are all
+     * still held.
+     */
+    boolean covers(long since, long current) {
+        return since >= floor && since <= current;
+    }
+
+    /**
+     * The net changes after version {@code since} that pass {@code filter}:
+     * a square added and removed again, or the other way round, is left out.
+     * Requires {@link #covers(long, long)}.
+     */
+    SquareChanges since(long since, long current, SquareFilter filter) {
+        // Every change flips a square's presence, so an even number of them cancels out
+        Map<SquareKey, Boolean> net = new LinkedHashMap<>();
+        Iterator<Change> newestFirst = changes.descendingIterator();
+        List<Change> after = new ArrayList<>();
+        while (newestFirst.hasNext()) {
+            Change change = newestFirst.next();
+            if (change.version() <= since) {
+                break;
+            }
+            after.add(change);
+        }
+
+        for (int i = after.size() - 1; i >= 0; i--) {
+            Change change = after.get(i);
+            if (filter.isUnfiltered() || filter.accepts(change.square())) {
+                if (net.remove(change.square()) == null) {
+                    net.put(change.square(), change.added());
+                }
+            }
+        }
+
+        List<SquareKey> added = new ArrayList<>();
+        List<SquareKey> removed = new ArrayList<>();
+        net.forEach((square, wasAdded) -> (wasAdded ? added : removed).add(square));
+        return new SquareChanges(current, false, added, removed);
+    }
+
+    private void append(Change change) {
+        changes.addLast(change);
+        while (changes.size() > capacity) {
+            floor = Math.max(floor, changes.removeFirst().version());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.justas.squares_backend.services;
+
+import java.util.List;
+
+import com.justas.squares_backend.helpers.SquareKey;
+
+/**
+ * The squares of a dataset that appeared and disappeared between two
+ * versions of its {@link SquareIndex}. When {@code reset} is set, the
+ * history no longer reaches back far enough and {@code added} holds every
+ * current square instead, to replace the caller's copy.
+ */
+public record SquareChanges(long version, boolean reset, List<SquareKey> added, List<SquareKey> removed) {
+
+}
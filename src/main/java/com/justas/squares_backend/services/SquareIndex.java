@@ -0,0 +1,501 @@
+package com.justas.squares_backend.services;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static com.justas.squares_backend.helpers.SquareKey.unpackX;
+import static com.justas.squares_backend.helpers.SquareKey.unpackY;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.detection.SquareScan;
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.helpers.LongHashSet;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import com.justas.squares_backend.mappers.SquareMapper;
+import com.justas.squares_backend.repository.PointRepository;
+
+/**
+ * In-memory index of the points of one dataset and every square they form.
+ * Instances are created and shared per dataset by {@link SquareIndexRegistry}.
+ * <p>
+ * The index is loaded from the repository on first use with a full
+ * {@link SquareScan} of the configured engine and afterwards kept up to date by
+ * {@link PointService}: adding or removing a point only checks the squares
+ * that point can be a corner of (O(n) per mutation), so reading the squares
+ * never rescans the whole dataset.
+ * <p>
+ * Squares are stored as canonical {@link SquareKey}s in a sorted set, so the
+ * two discoveries of the same square collapse into one entry and DTOs are
+ * only built when the list is actually requested. Every square a mutation
+ * adds or removes is recorded in a bounded {@link SquareChangeLog}, so
+ * copies of the list can be brought up to date with {@link #changesSince}.
+ */
+public class SquareIndex {
+
+    private final String dataset;
+    private final PointRepository repository;
+    private final SquareDetector detector;
+
+    private LongHashSet points = new LongHashSet();
+    private final NavigableSet<SquareKey> squares = new TreeSet<>();
+    private final SquareChangeLog changes;
+    private boolean loaded;
+
+    // Written under the lock, read without it so version checks never wait for a load
+    private volatile long version;
+
+    // Not synchronized: a virtual thread blocking in a monitor (e.g. on the
+    // initial load) would pin its carrier thread on JDK 21
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SquareIndex(String dataset, PointRepository repository, SquareDetector detector) {
+        this(dataset, repository, detector, 0, SquareIndexRegistry.DEFAULT_RETAINED_CHANGES);
+    }
+
+    /**
+     * @param firstVersion version before the first mutation
+     * @param retainedChanges square changes kept for {@link #changesSince}
+     */
+    public SquareIndex(
+            String dataset,
+            PointRepository repository,
+            SquareDetector detector,
+            long firstVersion,
+            int retainedChanges
+    ) {
+        this.dataset = dataset;
+        this.repository = repository;
+        this.detector = detector;
+        this.version = firstVersion;
+        this.changes = new SquareChangeLog(retainedChanges, firstVersion);
+    }
+
+    /**
+     * Loads the index right away instead of on its first use.
+     */
+    public void preload() {
+        lock.lock();
+        try {
+            ensureLoaded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether the index changed; {@code false} when the point was
+     *         already indexed
+     */
+    public boolean pointAdded(int x, int y) {
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            long point = pack(x, y);
+            if (points.contains(point)) {
+                return false;
+            }
+
+            List<SquareKey> added = addSquares(squaresThrough(point));
+            points.add(point);
+            changes.added(++version, added);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of points. Small batches are merged point by point; when
+     * the batch is large compared to the index, one full scan of all points
+     * is cheaper than checking every new point against every other one.
+     *
+     * @return whether the index changed
+     */
+    public boolean pointsAdded(int[] xs, int[] ys) {
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            if ((long) xs.length * 4 <= points.size() + xs.length) {
+                boolean changed = false;
+                for (int i = 0; i < xs.length; i++) {
+                    changed |= pointAdded(xs[i], ys[i]);
+                }
+                return changed;
+            }
+
+            long[] existing = points.toArray();
+            int[] allXs = Arrays.copyOf(xs, xs.length + existing.length);
+            int[] allYs = Arrays.copyOf(ys, ys.length + existing.length);
+            for (int i = 0; i < existing.length; i++) {
+                allXs[xs.length + i] = unpackX(existing[i]);
+                allYs[ys.length + i] = unpackY(existing[i]);
+            }
+
+            // New points only ever add squares, so the rescan keeps every stored one
+            int indexed = points.size();
+            List<SquareKey> added = load(allXs, allYs);
+            if (points.size() == indexed) {
+                return false;
+            }
+            changes.added(++version, added);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean containsPoint(int x, int y) {
+        lock.lock();
+        try {
+            ensureLoaded();
+            return points.contains(pack(x, y));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether the index changed; {@code false} when the point was not
+     *         indexed
+     */
+    public boolean pointRemoved(int x, int y) {
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            long point = pack(x, y);
+            if (!points.remove(point)) {
+                return false;
+            }
+
+            List<SquareKey> removed = removeSquares(squaresThrough(point));
+            changes.removed(++version, removed);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a batch of points. Squares are only dropped for the points
+     * that were indexed, the remaining ones are never detected again.
+     *
+     * @return whether the index changed
+     */
+    public boolean pointsRemoved(int[] xs, int[] ys) {
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            LongHashSet removed = new LongHashSet(xs.length);
+            for (int i = 0; i < xs.length; i++) {
+                long point = pack(xs[i], ys[i]);
+                if (points.contains(point)) {
+                    removed.add(point);
+                }
+            }
+            return removeAll(removed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every indexed point inside {@code region}.
+     *
+     * @return whether the index changed
+     */
+    public boolean pointsRemovedIn(Region region) {
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            LongHashSet removed = new LongHashSet();
+            points.forEach(point -> {
+                if (region.contains(unpackX(point), unpackY(point))) {
+                    removed.add(point);
+                }
+            });
+            return removeAll(removed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counter bumped by every committed write to the stored points, so
+     * results derived from the index can be tagged with the state they saw.
+     * Reading it neither loads the index nor waits for a running load:
+     * before the first mutation it is the first version the index was
+     * created with, for the state the repository started with.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Bumps the version without changing the index, for a write the
+     * repository has committed but the index already contained: the index
+     * was loaded after the commit and before the write was applied to it.
+     * The version still has to move, or a response tagged before the write
+     * would keep matching.
+     */
+    public void advanceVersion() {
+        lock.lock();
+        try {
+            version++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The squares passing {@code filter} that were added and removed after
+     * version {@code since}, or every current square with
+     * {@link SquareChanges#reset()} set when {@code since} is {@code null},
+     * older than the retained history, or not a version of this index.
+     */
+    public SquareChanges changesSince(Long since, SquareFilter filter) {
+        lock.lock();
+        try {
+            if (since != null && since == version) {
+                return new SquareChanges(version, false, List.of(), List.of());
+            }
+
+            ensureLoaded();
+            if (since != null && changes.covers(since, version)) {
+                return changes.since(since, version, filter);
+            }
+
+            List<SquareKey> all = squares.stream()
+                    .filter(square -> filter.isUnfiltered() || filter.accepts(square))
+                    .toList();
+            return new SquareChanges(version, true, all, List.of());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<SquareDTO> getSquares() {
+        return getSquares(SquareFilter.NONE);
+    }
+
+    /**
+     * The squares passing {@code filter}. The filter only needs the stored
+     * keys, so no square is built or detected for the ones it rejects.
+     */
+    public List<SquareDTO> getSquares(SquareFilter filter) {
+        lock.lock();
+        try {
+            ensureLoaded();
+            return squares.stream()
+                    .filter(square -> filter.isUnfiltered() || filter.accepts(square))
+                    .map(SquareMapper::toDTO)
+                    .toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Packed (anchor, adjacent) pairs of all squares, in key order.
+     */
+    public long[] squareKeys() {
+        return squareKeys(SquareFilter.NONE);
+    }
+
+    /**
+     * Packed (anchor, adjacent) pairs of the squares passing {@code filter},
+     * in key order.
+     */
+    public long[] squareKeys(SquareFilter filter) {
+        lock.lock();
+        try {
+            ensureLoaded();
+
+            LongList keys = filter.isUnfiltered()
+                    ? new LongList(squares.size() * 2)
+                    : new LongList();
+            for (SquareKey square : squares) {
+                if (filter.isUnfiltered() || filter.accepts(square)) {
+                    keys.add(square.anchor());
+                    keys.add(square.adjacent());
+                }
+            }
+            return keys.toArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int countSquares() {
+        return countSquares(SquareFilter.NONE);
+    }
+
+    public int countSquares(SquareFilter filter) {
+        lock.lock();
+        try {
+            ensureLoaded();
+            if (filter.isUnfiltered()) {
+                return squares.size();
+            }
+
+            int count = 0;
+            for (SquareKey square : squares) {
+                if (filter.accepts(square)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+
+        List<Point> stored = repository.findByDataset(dataset);
+        int[] xs = new int[stored.size()];
+        int[] ys = new int[stored.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = stored.get(i).getX();
+            ys[i] = stored.get(i).getY();
+        }
+
+        load(xs, ys);
+        loaded = true;
+    }
+
+    /**
+     * Scans all of {@code xs}/{@code ys} and adds the squares found to the
+     * stored ones.
+     *
+     * @return the squares that were not stored yet
+     */
+    private List<SquareKey> load(int[] xs, int[] ys) {
+        SquareScan scan = detector.prepare(xs, ys);
+        LongList found = detector.detect(scan);
+        List<SquareKey> added = new ArrayList<>();
+        for (int i = 0; i < found.size(); i += 2) {
+            SquareKey square = new SquareKey(found.get(i), found.get(i + 1));
+            if (squares.add(square)) {
+                added.add(square);
+            }
+        }
+
+        points = scan.points();
+        return added;
+    }
+
+    // Each square through a point is found from both of its neighbours, so only the first counts
+    private List<SquareKey> addSquares(List<SquareKey> found) {
+        List<SquareKey> added = new ArrayList<>(found.size());
+        for (SquareKey square : found) {
+            if (squares.add(square)) {
+                added.add(square);
+            }
+        }
+        return added;
+    }
+
+    private List<SquareKey> removeSquares(List<SquareKey> found) {
+        List<SquareKey> removed = new ArrayList<>(found.size());
+        for (SquareKey square : found) {
+            if (squares.remove(square)) {
+                removed.add(square);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Drops the indexed points in {@code removed} and every square with one
+     * of them as a corner. Checking the squares through each point costs O(n)
+     * per point, sweeping all stored squares once costs O(squares), so the
+     * cheaper of the two is used.
+     */
+    private boolean removeAll(LongHashSet removed) {
+        if (removed.isEmpty()) {
+            return false;
+        }
+
+        List<SquareKey> dropped = new ArrayList<>();
+        if ((long) removed.size() * points.size() <= squares.size()) {
+            removed.forEach(point -> {
+                dropped.addAll(removeSquares(squaresThrough(point)));
+                points.remove(point);
+            });
+        } else {
+            squares.removeIf(square -> {
+                for (long corner : square.corners()) {
+                    if (removed.contains(corner)) {
+                        dropped.add(square);
+                        return true;
+                    }
+                }
+                return false;
+            });
+            removed.forEach(points::remove);
+        }
+        changes.removed(++version, dropped);
+        return true;
+    }
+
+    /**
+     * Finds every square that has {@code p} as a corner and whose other three
+     * corners are already indexed. Each stored point {@code q} is treated as a
+     * neighbour of {@code p}, and the side PQ is rotated 90 degrees both ways
+     * to get the remaining two corners.
+     */
+    private List<SquareKey> squaresThrough(long p) {
+        List<SquareKey> found = new ArrayList<>();
+
+        points.forEach(q -> {
+            if (q == p) {
+                return;
+            }
+
+            long dx = (long) unpackX(q) - unpackX(p);
+            long dy = (long) unpackY(q) - unpackY(p);
+
+            // Side PQ rotated by +90 and -90 degrees
+            addIfSquare(found, p, q, -dy, dx);
+            addIfSquare(found, p, q, dy, -dx);
+        });
+
+        return found;
+    }
+
+    private void addIfSquare(List<SquareKey> found, long p, long q, long rx, long ry) {
+        long cx = unpackX(q) + rx;
+        long cy = unpackY(q) + ry;
+        long dx = unpackX(p) + rx;
+        long dy = unpackY(p) + ry;
+
+        // Corners outside the int range can never be stored points
+        if (cx != (int) cx || cy != (int) cy || dx != (int) dx || dy != (int) dy) {
+            return;
+        }
+
+        long c = pack((int) cx, (int) cy);
+        long d = pack((int) dx, (int) dy);
+
+        if (points.contains(c) && points.contains(d)) {
+            found.add(SquareKey.of(p, q, c, d));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.justas.squares_backend.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.repository.PointRepository;
+
+/**
+ * Hands out one {@link SquareIndex} per dataset. Each index loads only the
+ * points of its own dataset, so a small dataset is never slowed down by a
+ * large one stored in the same database.
+ * <p>
+ * Dataset names come from the request path, so only writes create an index
+ * for a dataset without stored points; reads of such a dataset get
+ * {@link #findDataset} empty. At most {@code maxDatasets} indexes are held,
+ * the least recently used one is dropped beyond that and loaded again on
+ * its next use.
+ * <p>
+ * Versions start at the creation time of the registry in microseconds
+ * rather than at 0, so a version handed out before a restart is never
+ * mistaken for one of the new indexes: it lies below their retained
+ * change history, or above their current version, and
+ * {@link SquareIndex#changesSince} answers it with a reset. An index
+ * created after an eviction starts above every version the dropped one
+ * handed out, for the same reason.
+ */
+@Component
+public class SquareIndexRegistry {
+
+    static final int DEFAULT_RETAINED_CHANGES = 100_000;
+    static final int DEFAULT_MAX_DATASETS = 1_000;
+
+    private final PointRepository repository;
+    private final SquareDetector detector;
+    private final int retainedChanges;
+
+    // Access-ordered, guarded by this
+    private final Map<String, SquareIndex> indexes;
+
+    // First version of the next index created, guarded by this
+    private long nextVersion;
+
+    public SquareIndexRegistry(PointRepository repository, SquareDetector detector) {
+        this(repository, detector, DEFAULT_RETAINED_CHANGES, DEFAULT_MAX_DATASETS);
+    }
+
+    @Autowired
+    public SquareIndexRegistry(
+            PointRepository repository,
+            SquareDetector detector,
+            @Value("${squares.changes.retained:" + DEFAULT_RETAINED_CHANGES + "}") int retainedChanges,
+            @Value("${squares.indexes.max-datasets:" + DEFAULT_MAX_DATASETS + "}") int maxDatasets
+    ) {
+        this.repository = repository;
+        this.detector = detector;
+        this.retainedChanges = retainedChanges;
+        this.nextVersion = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SquareIndex> eldest) {
+                if (size() <= maxDatasets) {
+                    return false;
+                }
+                nextVersion = Math.max(nextVersion, eldest.getValue().version() + 1);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * The index of {@code dataset}, created if there is none yet. Meant for
+     * writes and for datasets known to be stored.
+     */
+    public synchronized SquareIndex forDataset(String dataset) {
+        return indexes.computeIfAbsent(
+                dataset,
+                name -> new SquareIndex(name, repository, detector, nextVersion, retainedChanges));
+    }
+
+    /**
+     * The index of {@code dataset} for reads, or empty when the dataset has
+     * neither an index nor any stored points.
+     */
+    public Optional<SquareIndex> findDataset(String dataset) {
+        synchronized (this) {
+            SquareIndex index = indexes.get(dataset);
+            if (index != null) {
+                return Optional.of(index);
+            }
+        }
+        return repository.existsByDataset(dataset) ? Optional.of(forDataset(dataset)) : Optional.empty();
+    }
+
+    /**
+     * The version of {@code dataset}; for a dataset without stored points,
+     * the version its index would start at.
+     */
+    public long version(String dataset) {
+        return findDataset(dataset).map(SquareIndex::version).orElseGet(this::emptyVersion);
+    }
+
+    /**
+     * The version reported for datasets without stored points. It never
+     * decreases, and a write to such a dataset moves its version above it.
+     */
+    public synchronized long emptyVersion() {
+        return nextVersion;
+    }
+}
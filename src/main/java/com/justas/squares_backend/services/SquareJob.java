@@ -0,0 +1,140 @@
+package com.justas.squares_backend.services;
+
+import java.util.concurrent.Future;
+
+import com.justas.squares_backend.detection.ScanProgress;
+import com.justas.squares_backend.dto.SquareJobDTO;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+
+/**
+ * One asynchronous detection run and its result, managed by
+ * {@link SquareJobService}.
+ */
+class SquareJob {
+
+    enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final String id;
+    private final String dataset;
+    private final Region region;
+    private final SquareFilter filter;
+    private final ScanProgress progress = new ScanProgress();
+
+    private Status status = Status.QUEUED;
+    private long startedAt;
+    private long finishedAt;
+    private LongList squares;
+    private String error;
+    private Future<?> future;
+
+    SquareJob(String id, String dataset, Region region, SquareFilter filter) {
+        this.id = id;
+        this.dataset = dataset;
+        this.region = region;
+        this.filter = filter;
+    }
+
+    String id() {
+        return id;
+    }
+
+    String dataset() {
+        return dataset;
+    }
+
+    Region region() {
+        return region;
+    }
+
+    SquareFilter filter() {
+        return filter;
+    }
+
+    ScanProgress progress() {
+        return progress;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Moves a queued job to running.
+     *
+     * @return false if the job was cancelled before it could start
+     */
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = System.nanoTime();
+        return true;
+    }
+
+    synchronized void complete(LongList squares) {
+        this.squares = squares;
+        finish(Status.COMPLETED);
+    }
+
+    synchronized void fail(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    synchronized void cancelled() {
+        finish(Status.CANCELLED);
+    }
+
+    /**
+     * Cancels a queued job right away; a running job stops at the next row of
+     * its scan.
+     */
+    synchronized void cancel() {
+        progress.cancel();
+        if (future != null) {
+            future.cancel(false);
+        }
+        if (status == Status.QUEUED) {
+            finish(Status.CANCELLED);
+        }
+    }
+
+    synchronized boolean isFinished() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+    synchronized Status status() {
+        return status;
+    }
+
+    synchronized LongList squares() {
+        return squares;
+    }
+
+    synchronized SquareJobDTO toDTO() {
+        long elapsedNanos = switch (status) {
+            case QUEUED -> 0;
+            case RUNNING -> System.nanoTime() - startedAt;
+            default -> startedAt == 0 ? 0 : finishedAt - startedAt;
+        };
+
+        return new SquareJobDTO(
+                id,
+                dataset,
+                status.name(),
+                progress.scanned(),
+                progress.total(),
+                elapsedNanos / 1_000_000,
+                squares != null ? squares.size() / 2 : null,
+                error
+        );
+    }
+
+    private void finish(Status status) {
+        this.status = status;
+        this.finishedAt = System.nanoTime();
+    }
+}
@@ -0,0 +1,211 @@
+package com.justas.squares_backend.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.dto.SquareJobDTO;
+import com.justas.squares_backend.exceptions.JobNotFoundException;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import com.justas.squares_backend.mappers.SquareMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs square detection in the background, so long scans neither hold a
+ * servlet thread nor depend on one HTTP connection staying open.
+ * <p>
+ * Jobs run on a fixed number of workers with a bounded queue; submissions
+ * beyond that are rejected instead of piling up. Finished jobs keep their
+ * result until they are deleted or, once more than
+ * {@code squares.jobs.retained} jobs exist, the oldest finished ones are
+ * dropped.
+ */
+@Service
+public class SquareJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(SquareJobService.class);
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 10_000;
+
+    private final SquareService squareService;
+    private final ExecutorService executor;
+    private final int retained;
+
+    // Insertion order, so eviction finds the oldest jobs first; guarded by this
+    private final Map<String, SquareJob> jobs = new LinkedHashMap<>();
+
+    @Autowired
+    public SquareJobService(
+            SquareService squareService,
+            @Value("${squares.jobs.workers:2}") int workers,
+            @Value("${squares.jobs.queue-capacity:16}") int queueCapacity,
+            @Value("${squares.jobs.retained:100}") int retained
+    ) {
+        this(squareService, new ThreadPoolExecutor(
+                workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory()), retained);
+    }
+
+    SquareJobService(SquareService squareService, ExecutorService executor, int retained) {
+        this.squareService = squareService;
+        this.executor = executor;
+        this.retained = retained;
+    }
+
+    /**
+     * Queues detection of the squares of {@code dataset} inside
+     * {@code region} (unbounded for the whole dataset).
+     */
+    public SquareJobDTO submit(String dataset, Region region) {
+        return submit(dataset, region, SquareFilter.NONE);
+    }
+
+    /**
+     * Like {@link #submit(String, Region)}, only keeping the squares that pass
+     * {@code filter}.
+     */
+    public SquareJobDTO submit(String dataset, Region region, SquareFilter filter) {
+        if (!region.isValid()) {
+            throw new IllegalArgumentException("Invalid region: min bound must not exceed max bound");
+        }
+        if (!filter.isValid()) {
+            throw new IllegalArgumentException(
+                    "Invalid square filter: side bounds must not be negative and minSide must not exceed maxSide");
+        }
+
+        SquareJob job = new SquareJob(UUID.randomUUID().toString(), dataset, region, filter);
+
+        synchronized (this) {
+            try {
+                job.setFuture(executor.submit(() -> run(job)));
+            } catch (RejectedExecutionException ex) {
+                throw new IllegalStateException("Too many square detection jobs queued, try again later");
+            }
+            jobs.put(job.id(), job);
+            evictFinished();
+        }
+
+        return job.toDTO();
+    }
+
+    public SquareJobDTO getJob(String dataset, String id) {
+        return find(dataset, id).toDTO();
+    }
+
+    /**
+     * Returns one page of the squares found by a completed job.
+     */
+    public List<SquareDTO> getResult(String dataset, String id, Integer page, Integer size) {
+        SquareJob job = find(dataset, id);
+        if (job.status() != SquareJob.Status.COMPLETED) {
+            throw new IllegalStateException("Square detection job " + id + " has not completed, status " + job.status());
+        }
+
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        int pageNumber = page != null ? page : 0;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE || pageNumber < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid page: size must be between 1 and " + MAX_PAGE_SIZE + " and page must not be negative"
+            );
+        }
+
+        LongList squares = job.squares();
+        int count = squares.size() / 2;
+        int from = (int) Math.min(count, (long) pageNumber * pageSize);
+        int to = Math.min(count, from + pageSize);
+
+        List<SquareDTO> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(SquareMapper.toDTO(new SquareKey(squares.get(2 * i), squares.get(2 * i + 1))));
+        }
+        return result;
+    }
+
+    /**
+     * Cancels a queued or running job. A job that has already finished is
+     * deleted together with its result.
+     */
+    public SquareJobDTO cancel(String dataset, String id) {
+        SquareJob job = find(dataset, id);
+        if (job.isFinished()) {
+            synchronized (this) {
+                jobs.remove(id);
+            }
+        } else {
+            job.cancel();
+        }
+        return job.toDTO();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            jobs.values().forEach(SquareJob::cancel);
+        }
+        executor.shutdownNow();
+    }
+
+    private synchronized SquareJob find(String dataset, String id) {
+        SquareJob job = jobs.get(id);
+        if (job == null || !job.dataset().equals(dataset)) {
+            throw new JobNotFoundException(id);
+        }
+        return job;
+    }
+
+    private void run(SquareJob job) {
+        if (!job.start()) {
+            return;
+        }
+
+        try {
+            job.complete(squareService.detectSquares(job.dataset(), job.region(), job.filter(), job.progress()));
+        } catch (CancellationException ex) {
+            job.cancelled();
+        } catch (RuntimeException ex) {
+            log.error("Square detection job {} failed", job.id(), ex);
+            job.fail(ex.getMessage());
+        }
+    }
+
+    private void evictFinished() {
+        Iterator<SquareJob> oldest = jobs.values().iterator();
+        while (jobs.size() > retained && oldest.hasNext()) {
+            if (oldest.next().isFinished()) {
+                oldest.remove();
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "square-job-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.justas.squares_backend.services;
+
+import org.springframework.stereotype.Component;
+
+import com.justas.squares_backend.repository.PointRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Meters read from existing state when the registry is scraped: the number
+ * of stored points and the statistics of the {@link SquareResultCache}.
+ * The timers and counters of the hot paths are registered by the services
+ * that update them.
+ */
+@Component
+public class SquareMetrics implements MeterBinder {
+
+    private final PointRepository repository;
+    private final SquareResultCache resultCache;
+
+    public SquareMetrics(PointRepository repository, SquareResultCache resultCache) {
+        this.repository = repository;
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // One count query per scrape, rather than loading every dataset's index
+        Gauge.builder("squares.points", repository, PointRepository::count)
+                .description("Points stored across all datasets")
+                .baseUnit("points")
+                .register(registry);
+
+        FunctionCounter.builder("squares.cache.hits", resultCache, cache -> cache.stats().hits())
+                .description("Square list requests served from the result cache")
+                .register(registry);
+        FunctionCounter.builder("squares.cache.misses", resultCache, cache -> cache.stats().misses())
+                .description("Square list requests that had to build the list")
+                .register(registry);
+        FunctionCounter.builder("squares.cache.evictions", resultCache, cache -> cache.stats().evictions())
+                .description("Cache entries dropped to stay within squares.cache.max-bytes")
+                .register(registry);
+        Gauge.builder("squares.cache.size", resultCache, cache -> cache.stats().estimatedBytes())
+                .description("Estimated memory held by the result cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
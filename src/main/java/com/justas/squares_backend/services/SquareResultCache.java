@@ -0,0 +1,92 @@
+package com.justas.squares_backend.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.justas.squares_backend.dto.CacheStatsDTO;
+import com.justas.squares_backend.dto.SquareDTO;
+
+/**
+ * Materialized square lists per dataset, so repeated reads between writes
+ * return the same list instead of building every DTO again.
+ * <p>
+ * Each entry is tagged with the {@link SquareIndex#version()} it was built
+ * from and is only served while the index still has that version; writes
+ * additionally drop the entry right away to release its memory. Entries are
+ * evicted least recently used first once their estimated size exceeds
+ * {@code squares.cache.max-bytes}.
+ */
+@Component
+public class SquareResultCache {
+
+    // SquareDTO + its 4-element list + 4 SquarePointDTOs + the slot in the outer list
+    static final long BYTES_PER_SQUARE = 176;
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SquareResultCache(@Value("${squares.cache.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached squares of {@code dataset} if they were built from
+     * {@code version}, otherwise {@code null}.
+     */
+    public synchronized List<SquareDTO> get(String dataset, long version) {
+        Entry entry = entries.get(dataset);
+        if (entry == null || entry.version() != version) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.squares();
+    }
+
+    /**
+     * Stores {@code squares} built from {@code version}. Lists larger than the
+     * whole cache are not stored.
+     */
+    public synchronized void put(String dataset, long version, List<SquareDTO> squares) {
+        long size = squares.size() * BYTES_PER_SQUARE;
+        if (size > maxBytes) {
+            return;
+        }
+
+        Entry previous = entries.put(dataset, new Entry(version, squares, size));
+        if (previous != null) {
+            bytes -= previous.bytes();
+        }
+        bytes += size;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().bytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(String dataset) {
+        Entry removed = entries.remove(dataset);
+        if (removed != null) {
+            bytes -= removed.bytes();
+        }
+    }
+
+    public synchronized CacheStatsDTO stats() {
+        return new CacheStatsDTO(hits, misses, evictions, entries.size(), bytes, maxBytes);
+    }
+
+    private record Entry(long version, List<SquareDTO> squares, long bytes) {}
+}
@@ -1,154 +1,237 @@
 package com.justas.squares_backend.services;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.springframework.stereotype.Service;
 
+import com.justas.squares_backend.detection.ScanProgress;
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.dto.CacheStatsDTO;
+import com.justas.squares_backend.dto.SquareChangesDTO;
 import com.justas.squares_backend.dto.SquareDTO;
-import com.justas.squares_backend.dto.SquarePointDTO;
 import com.justas.squares_backend.entities.Point;
-import com.justas.squares_backend.helpers.PointKey;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import com.justas.squares_backend.mappers.SquareMapper;
 import com.justas.squares_backend.repository.PointRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class SquareService {
 
+    private final SquareIndexRegistry squareIndexes;
+    private final SquareResultCache resultCache;
     private final PointRepository pointRepository;
-
-    public SquareService(PointRepository pointRepository) {
+    private final SquareDetector detector;
+    private final Timer cachedFind;
+    private final Timer uncachedFind;
+    private final Timer filteredFind;
+
+    public SquareService(
+            SquareIndexRegistry squareIndexes,
+            SquareResultCache resultCache,
+            PointRepository pointRepository,
+            SquareDetector detector,
+            MeterRegistry registry
+    ) {
+        this.squareIndexes = squareIndexes;
+        this.resultCache = resultCache;
         this.pointRepository = pointRepository;
+        this.detector = detector;
+        this.cachedFind = findTimer(registry, "hit");
+        this.uncachedFind = findTimer(registry, "miss");
+        this.filteredFind = findTimer(registry, "bypass");
     }
 
-    public List<SquareDTO> findSquares() {
-
-        List<Point> points = pointRepository.findAll();
-
-        Set<PointKey> pointSet = points.stream()
-                .map(p -> new PointKey(p.getX(), p.getY()))
-                .collect(Collectors.toSet());
-
-        List<SquareDTO> squares = new ArrayList<>();
-        int n = points.size();
-
-        for (int i = 0; i < n; i++) {
-            Point a = points.get(i);
-
-            for (int j = i + 1; j < n; j++) {
-                Point c = points.get(j);
-
-                // Skip identical points (zero-length diagonal)
-                if (a.getX() == c.getX() && a.getY() == c.getY()) {
-                    continue;
-                }
-
-                // Midpoint of AC
-                double mx = (a.getX() + c.getX()) / 2.0;
-                double my = (a.getY() + c.getY()) / 2.0;
-
-                // Vector from midpoint to A
-                double vx = a.getX() - mx;
-                double vy = a.getY() - my;
-
-                // Rotate 90 degrees to get midpoint→B
-                double rx = -vy;
-                double ry = vx;
-
-                // Compute B and D
-                double bx = mx + rx;
-                double by = my + ry;
-
-                double dx = mx - rx;
-                double dy = my - ry;
+    private static Timer findTimer(MeterRegistry registry, String cache) {
+        return Timer.builder("squares.find")
+                .description("Duration of listing the squares of a dataset")
+                .tag("cache", cache)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
 
-                // B and D must be integer coordinates
-                if (!isInteger(bx) || !isInteger(by) || !isInteger(dx) || !isInteger(dy)) {
-                    continue;
-                }
+    /**
+     * Returns the squares of {@code dataset}, from the result cache when no
+     * point was added or removed since the list was last built.
+     */
+    public List<SquareDTO> findSquares(String dataset) {
+        long started = System.nanoTime();
+        SquareIndex index = squareIndexes.findDataset(dataset).orElse(null);
+        if (index == null) {
+            return List.of();
+        }
 
-                PointKey b = new PointKey((int) bx, (int) by);
-                PointKey d = new PointKey((int) dx, (int) dy);
+        // Read the version first: a write racing with getSquares() then only
+        // tags a newer list with an older version, which just causes a miss
+        long version = index.version();
+        List<SquareDTO> cached = resultCache.get(dataset, version);
+        if (cached != null) {
+            cachedFind.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return cached;
+        }
 
-                // Check if B and D exist
-                if (!pointSet.contains(b) || !pointSet.contains(d)) {
-                    continue;
-                }
+        List<SquareDTO> squares = index.getSquares();
+        resultCache.put(dataset, version, squares);
+        uncachedFind.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return squares;
+    }
 
-                // Build the four points
-                SquarePointDTO p1 = new SquarePointDTO(a.getX(), a.getY());
-                SquarePointDTO p2 = new SquarePointDTO(b.x(), b.y());
-                SquarePointDTO p3 = new SquarePointDTO(c.getX(), c.getY());
-                SquarePointDTO p4 = new SquarePointDTO(d.x(), d.y());
+    /**
+     * Returns the squares of {@code dataset} passing {@code filter}. Filtered
+     * lists are selected from the index on every call instead of being
+     * cached, so only the unfiltered list occupies the result cache.
+     */
+    public List<SquareDTO> findSquares(String dataset, SquareFilter filter) {
+        validate(filter);
+        if (filter.isUnfiltered()) {
+            return findSquares(dataset);
+        }
 
-                // --- ORDER POINTS INTO PERIMETER ORDER ---
-                List<SquarePointDTO> pts = new ArrayList<>(List.of(p1, p2, p3, p4));
+        long started = System.nanoTime();
+        List<SquareDTO> squares = squareIndexes.findDataset(dataset)
+                .map(index -> index.getSquares(filter))
+                .orElse(List.of());
+        filteredFind.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return squares;
+    }
 
-                double cx = (p1.x() + p2.x() + p3.x() + p4.x()) / 4.0;
-                double cy = (p1.y() + p2.y() + p3.y() + p4.y()) / 4.0;
+    /**
+     * Passes every square to {@code consumer} one at a time. Only the packed
+     * keys are snapshotted, each DTO is built right before it is handed on.
+     */
+    public void streamSquares(String dataset, Consumer<SquareDTO> consumer) {
+        streamSquares(dataset, SquareFilter.NONE, consumer);
+    }
 
-                pts.sort(Comparator.comparingDouble(p ->
-                        Math.atan2(p.y() - cy, p.x() - cx)
-                ));
+    /**
+     * Like {@link #streamSquares(String, Consumer)}, only passing the squares
+     * that pass {@code filter}.
+     */
+    public void streamSquares(String dataset, SquareFilter filter, Consumer<SquareDTO> consumer) {
+        long[] keys = squareKeys(dataset, filter);
+        for (int i = 0; i < keys.length; i += 2) {
+            consumer.accept(SquareMapper.toDTO(new SquareKey(keys[i], keys[i + 1])));
+        }
+    }
 
-                SquarePointDTO s1 = pts.get(0);
-                SquarePointDTO s2 = pts.get(1);
-                SquarePointDTO s3 = pts.get(2);
-                SquarePointDTO s4 = pts.get(3);
+    /**
+     * Packed (anchor, adjacent) pairs of the squares of {@code dataset} that
+     * pass {@code filter}, for writers that encode squares without DTOs.
+     */
+    public long[] squareKeys(String dataset, SquareFilter filter) {
+        validate(filter);
+        return squareIndexes.findDataset(dataset)
+                .map(index -> index.squareKeys(filter))
+                .orElse(new long[0]);
+    }
 
-                // --- VALIDATE SIDES ---
-                int d12 = dist2(s1, s2);
-                int d23 = dist2(s2, s3);
-                int d34 = dist2(s3, s4);
-                int d41 = dist2(s4, s1);
+    /**
+     * Detects the squares of {@code dataset} whose four corners all lie inside
+     * {@code region}. Only the points in the region are loaded (through the
+     * (dataset, x, y) index), so the cost depends on the region rather than on
+     * the whole dataset.
+     */
+    public List<SquareDTO> findSquaresInRegion(String dataset, Region region) {
+        return findSquaresInRegion(dataset, region, SquareFilter.NONE);
+    }
 
-                if (d12 == 0 || d12 != d23 || d23 != d34 || d34 != d41) {
-                    continue; // not a square
-                }
+    /**
+     * Like {@link #findSquaresInRegion(String, Region)}, only returning the
+     * squares that pass {@code filter}. The filter is handed to the scan, so
+     * rejected squares are skipped during detection.
+     */
+    public List<SquareDTO> findSquaresInRegion(String dataset, Region region, SquareFilter filter) {
+        LongList found = detectSquares(dataset, region, filter, null);
+        List<SquareDTO> squares = new ArrayList<>(found.size() / 2);
+        for (int i = 0; i < found.size(); i += 2) {
+            squares.add(SquareMapper.toDTO(new SquareKey(found.get(i), found.get(i + 1))));
+        }
+        return squares;
+    }
 
-                // --- VALIDATE DIAGONALS ---
-                int diag1 = dist2(s1, s3);
-                int diag2 = dist2(s2, s4);
+    /**
+     * Scans the points of {@code dataset} inside {@code region} from scratch,
+     * bypassing the index, and returns the packed (anchor, adjacent) pairs of
+     * the squares found. {@code progress} (may be {@code null}) follows and
+     * can cancel the scan.
+     */
+    public LongList detectSquares(String dataset, Region region, ScanProgress progress) {
+        return detectSquares(dataset, region, SquareFilter.NONE, progress);
+    }
 
-                if (diag1 != diag2) {
-                    continue; // diagonals must match
-                }
+    /**
+     * Like {@link #detectSquares(String, Region, ScanProgress)}, only
+     * returning the squares that pass {@code filter}.
+     */
+    public LongList detectSquares(String dataset, Region region, SquareFilter filter, ScanProgress progress) {
+        if (!region.isValid()) {
+            throw new IllegalArgumentException("Invalid region: min bound must not exceed max bound");
+        }
+        validate(filter);
 
-                // Normalize for deduplication
-                SquareDTO square = normalizeSquare(pts);
+        List<Point> points = pointRepository.findByDatasetAndXBetweenAndYBetween(
+                dataset, region.fromX(), region.toX(), region.fromY(), region.toY());
 
-                if (!squares.contains(square)) {
-                    squares.add(square);
-                }
-            }
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i).getX();
+            ys[i] = points.get(i).getY();
         }
 
-        return squares;
+        return detector.detect(detector.prepare(xs, ys, filter), progress);
     }
 
-    private boolean isInteger(double v) {
-        return Math.floor(v) == v;
+    // The index keeps the count up to date itself, so it needs no cache entry
+    public int countSquares(String dataset) {
+        return squareIndexes.findDataset(dataset).map(SquareIndex::countSquares).orElse(0);
     }
 
-    private int dist2(SquarePointDTO a, SquarePointDTO b) {
-        int dx = a.x() - b.x();
-        int dy = a.y() - b.y();
-        return dx * dx + dy * dy;
+    public int countSquares(String dataset, SquareFilter filter) {
+        validate(filter);
+        return squareIndexes.findDataset(dataset).map(index -> index.countSquares(filter)).orElse(0);
     }
 
-    private SquareDTO normalizeSquare(List<SquarePointDTO> points) {
-        List<SquarePointDTO> sorted = points.stream()
-                .sorted(Comparator.comparing(SquarePointDTO::x)
-                        .thenComparing(SquarePointDTO::y))
-                .toList();
+    /**
+     * Returns the squares of {@code dataset} passing {@code filter} that were
+     * added and removed after version {@code since}. When those changes are
+     * no longer known, or {@code since} is missing, the result is a reset
+     * listing every current square as added.
+     */
+    public SquareChangesDTO findChanges(String dataset, Long since, SquareFilter filter) {
+        validate(filter);
+        SquareChanges changes = squareIndexes.findDataset(dataset)
+                .map(index -> index.changesSince(since, filter))
+                .orElseGet(() -> noChanges(squareIndexes.emptyVersion(), since));
+        return new SquareChangesDTO(
+                changes.version(),
+                changes.reset(),
+                changes.added().stream().map(SquareMapper::toDTO).toList(),
+                changes.removed().stream().map(SquareMapper::toDTO).toList());
+    }
 
-        return new SquareDTO(sorted);
+    // A dataset without points has no squares; a client at another version has to drop its copy
+    private static SquareChanges noChanges(long version, Long since) {
+        boolean current = since != null && since == version;
+        return new SquareChanges(version, !current, List.of(), List.of());
     }
 
-    public int countSquares() {
-        return findSquares().size();
+    private static void validate(SquareFilter filter) {
+        if (!filter.isValid()) {
+            throw new IllegalArgumentException(
+                    "Invalid square filter: side bounds must not be negative and minSide must not exceed maxSide");
+        }
     }
-}
 
+    public CacheStatsDTO cacheStats() {
+        return resultCache.stats();
+    }
+}
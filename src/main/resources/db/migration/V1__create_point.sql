@@ -0,0 +1,11 @@
+-- Matches the Point entity; allocationSize 50 of point_seq has to match the increment
+create sequence point_seq start with 1 increment by 50;
+
+create table point (
+    id bigint not null,
+    dataset varchar(64) not null,
+    x integer not null,
+    y integer not null,
+    constraint pk_point primary key (id),
+    constraint uk_point_dataset_x_y unique (dataset, x, y)
+);
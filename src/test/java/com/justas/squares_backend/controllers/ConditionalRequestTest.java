@@ -0,0 +1,67 @@
+package com.justas.squares_backend.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs against the real services and database, because stale tags come
+ * from how writes, the lazily loaded index and its version interact.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalRequestTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private String etag(String path) throws Exception {
+        return mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+    }
+
+    // ------------------------------------------------------------
+    // 1. A WRITE TO A DATASET WHOSE INDEX IS NOT LOADED YET CHANGES THE TAG
+    @Test
+    void firstWriteToUnloadedDatasetChangesEtag() throws Exception {
+        String before = etag("/datasets/etag-fresh/points");
+
+        mockMvc.perform(post("/datasets/etag-fresh/points/single")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"x\":1,\"y\":2}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/datasets/etag-fresh/points").header("If-None-Match", before))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+        assertThat(etag("/datasets/etag-fresh/points")).isNotEqualTo(before);
+    }
+
+    // ------------------------------------------------------------
+    // 2. DELETING A CORNER CHANGES THE TAG OF THE SQUARE COUNT
+    @Test
+    void deleteChangesSquareCountEtag() throws Exception {
+        mockMvc.perform(post("/datasets/etag-square/points")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"x\":0,\"y\":0},{\"x\":0,\"y\":1},{\"x\":1,\"y\":0},{\"x\":1,\"y\":1}]"))
+                .andExpect(status().isCreated());
+        String before = etag("/datasets/etag-square/squares/count");
+
+        mockMvc.perform(delete("/datasets/etag-square/points/single")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"x\":1,\"y\":1}"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/datasets/etag-square/squares/count").header("If-None-Match", before))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0"));
+    }
+}
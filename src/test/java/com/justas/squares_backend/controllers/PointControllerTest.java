@@ -1,18 +1,34 @@
 package com.justas.squares_backend.controllers;
 
+import com.justas.squares_backend.dto.DeleteSummaryDTO;
+import com.justas.squares_backend.dto.ImportSummaryDTO;
 import com.justas.squares_backend.dto.PointInputDTO;
 import com.justas.squares_backend.dto.PointOutputDTO;
+import com.justas.squares_backend.helpers.BinaryCodec;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.PointStreamReader;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.services.DatasetVersions;
+import com.justas.squares_backend.services.PointImportService;
 import com.justas.squares_backend.services.PointService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayOutputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -26,13 +42,19 @@ class PointControllerTest {
     @MockBean
     private PointService pointService;
 
+    @MockBean
+    private PointImportService importService;
+
+    @MockBean
+    private DatasetVersions versions;
+
     // ------------------------------------------------------------
     // 1. POST /points/single
     @Test
     void addPoint_returnsCreatedPoint() throws Exception {
         PointOutputDTO output = new PointOutputDTO(null, 1, 2);
 
-        when(pointService.addPoint(any(PointInputDTO.class))).thenReturn(output);
+        when(pointService.addPoint(eq(Datasets.DEFAULT), any(PointInputDTO.class))).thenReturn(output);
 
         mockMvc.perform(post("/points/single")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -48,7 +70,7 @@ class PointControllerTest {
     // 2. DELETE /points/single
     @Test
     void deletePoint_returnsNoContent() throws Exception {
-        when(pointService.deletePointByCoordinates(any(PointInputDTO.class)))
+        when(pointService.deletePointByCoordinates(eq(Datasets.DEFAULT), any(PointInputDTO.class)))
                 .thenReturn(new PointOutputDTO(null, 3, 4));
 
         mockMvc.perform(delete("/points/single")
@@ -68,7 +90,7 @@ class PointControllerTest {
                 new PointOutputDTO(null, 2, 2)
         );
 
-        when(pointService.addPoints(any())).thenReturn(output);
+        when(pointService.addPoints(eq(Datasets.DEFAULT), any())).thenReturn(output);
 
         mockMvc.perform(post("/points")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -89,11 +111,180 @@ class PointControllerTest {
                 new PointOutputDTO(null, 7, 7)
         );
 
-        when(pointService.getAllPoints()).thenReturn(output);
+        when(pointService.getAllPoints(Datasets.DEFAULT)).thenReturn(output);
 
         mockMvc.perform(get("/points"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].x").value(5))
                 .andExpect(jsonPath("$[1].y").value(7));
     }
-}
\ No newline at end of file
+
+    // ------------------------------------------------------------
+    // 5. POST /points/stream (CSV)
+    @Test
+    void importPointStream_returnsSummary() throws Exception {
+        when(importService.importStream(eq(Datasets.DEFAULT), any(), eq(PointStreamReader.Format.CSV)))
+                .thenReturn(new ImportSummaryDTO(2, 1, 5));
+
+        mockMvc.perform(post("/points/stream")
+                        .contentType("text/csv")
+                        .content("""
+                                x,y
+                                1,1
+                                2,2
+                                oops
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(1));
+    }
+
+    // ------------------------------------------------------------
+    // 6. GET /points/stream
+    @Test
+    void streamPoints_writesNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<PointOutputDTO> consumer = invocation.getArgument(1);
+            consumer.accept(new PointOutputDTO(1L, 5, 5));
+            consumer.accept(new PointOutputDTO(2L, 7, 7));
+            return null;
+        }).when(pointService).streamPoints(eq(Datasets.DEFAULT), any());
+
+        MvcResult result = mockMvc.perform(get("/points/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("""
+                        {"id":1,"x":5,"y":5}
+                        {"id":2,"x":7,"y":7}
+                        """));
+    }
+
+    // ------------------------------------------------------------
+    // 7. GET /points with bounding box and page
+    @Test
+    void getPoints_withRegionAndPage_returnsPage() throws Exception {
+        when(pointService.findPoints(Datasets.DEFAULT, new Region(0, 10, null, null), 1, 2, null))
+                .thenReturn(List.of(new PointOutputDTO(3L, 4, 4)));
+
+        mockMvc.perform(get("/points")
+                        .param("minX", "0")
+                        .param("maxX", "10")
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    // ------------------------------------------------------------
+    // 8. POST /datasets/{dataset}/points/single
+    @Test
+    void addPoint_toNamedDataset() throws Exception {
+        when(pointService.addPoint(eq("team-a"), any(PointInputDTO.class)))
+                .thenReturn(new PointOutputDTO(1L, 1, 2));
+
+        mockMvc.perform(post("/datasets/team-a/points/single")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"x":1,"y":2}
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    // ------------------------------------------------------------
+    // 9. INVALID DATASET NAME
+    @Test
+    void getPoints_rejectsInvalidDatasetName() throws Exception {
+        mockMvc.perform(get("/datasets/{dataset}/points", "a b"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ------------------------------------------------------------
+    // 10. DELETE /points and DELETE /points/region
+    @Test
+    void deletePoints_returnsDeletedCount() throws Exception {
+        when(pointService.deletePoints(eq(Datasets.DEFAULT), any())).thenReturn(new DeleteSummaryDTO(2));
+        when(pointService.deletePointsInRegion(Datasets.DEFAULT, new Region(0, 10, null, null)))
+                .thenReturn(new DeleteSummaryDTO(5));
+
+        mockMvc.perform(delete("/points")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"x":1,"y":2},{"x":3,"y":4}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+
+        mockMvc.perform(delete("/points/region").param("minX", "0").param("maxX", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(5));
+    }
+
+    // ------------------------------------------------------------
+    // 11. POST /points/upsert
+    @Test
+    void importNewPoints_returnsSummary() throws Exception {
+        when(importService.importNew(eq(Datasets.DEFAULT), any())).thenReturn(new ImportSummaryDTO(1, 2, 3));
+
+        mockMvc.perform(post("/points/upsert")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"x":1,"y":2},{"x":3,"y":4},{"x":3,"y":4}]
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(2));
+    }
+
+    // ------------------------------------------------------------
+    // 12. POST /points IN BINARY
+    @Test
+    void importBinaryPoints_returnsSummary() throws Exception {
+        when(importService.importBinary(eq(Datasets.DEFAULT), any())).thenReturn(new ImportSummaryDTO(2, 0, 1));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        BinaryCodec.writePoints(List.of(new PointInputDTO(1, 2), new PointInputDTO(3, 4)), body);
+
+        mockMvc.perform(post("/points")
+                        .contentType(BinaryCodec.MEDIA_TYPE)
+                        .content(body.toByteArray()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.imported").value(2));
+    }
+
+    // ------------------------------------------------------------
+    // 13. GET /points WITH If-None-Match
+    @Test
+    void getPoints_returnsNotModifiedForCurrentEtag() throws Exception {
+        when(versions.etag(Datasets.DEFAULT, "json")).thenReturn("W/\"e-7-json\"");
+
+        mockMvc.perform(get("/points").header("If-None-Match", "W/\"e-7-json\""))
+                .andExpect(status().isNotModified());
+
+        verify(pointService, never()).getAllPoints(any());
+    }
+
+    // ------------------------------------------------------------
+    // 14. ONLY THE UNIQUE COORDINATE CONSTRAINT ANSWERS 409
+    @Test
+    void constraintViolations_mapToConflictOnlyForDuplicates() throws Exception {
+        when(importService.importNew(eq("dupes"), any())).thenThrow(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_POINT_DATASET_X_Y_INDEX_4 ON PUBLIC.POINT\""));
+        when(importService.importNew(eq("broken"), any())).thenThrow(new DataIntegrityViolationException(
+                "NULL not allowed for column \"DATASET\""));
+
+        mockMvc.perform(post("/datasets/dupes/points/upsert")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"x\":1,\"y\":2}]"))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(post("/datasets/broken/points/upsert")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"x\":1,\"y\":2}]"))
+                .andExpect(status().isInternalServerError());
+    }
+}
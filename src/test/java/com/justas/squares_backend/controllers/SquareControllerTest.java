@@ -1,7 +1,15 @@
 package com.justas.squares_backend.controllers;
 
+import com.justas.squares_backend.dto.CacheStatsDTO;
+import com.justas.squares_backend.dto.SquareChangesDTO;
 import com.justas.squares_backend.dto.SquareDTO;
 import com.justas.squares_backend.dto.SquarePointDTO;
+import com.justas.squares_backend.helpers.BinaryCodec;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import com.justas.squares_backend.services.DatasetVersions;
 import com.justas.squares_backend.services.SquareService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,10 +17,20 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -26,6 +44,10 @@ class SquareControllerTest {
 	@MockBean
     private SquareService squareService;
 
+    @SuppressWarnings("removal")
+    @MockBean
+    private DatasetVersions versions;
+
     // ------------------------------------------------------------
     // 1. GET /squares
     @Test
@@ -39,7 +61,7 @@ class SquareControllerTest {
                 )
         );
 
-        when(squareService.findSquares()).thenReturn(List.of(square));
+        when(squareService.findSquares(Datasets.DEFAULT, SquareFilter.NONE)).thenReturn(List.of(square));
 
         mockMvc.perform(get("/squares")
                         .accept(MediaType.APPLICATION_JSON))
@@ -52,10 +74,183 @@ class SquareControllerTest {
     // 2. GET /squares/count
     @Test
     void getSquareCount_returnsCount() throws Exception {
-        when(squareService.countSquares()).thenReturn(5);
+        when(squareService.countSquares(Datasets.DEFAULT, SquareFilter.NONE)).thenReturn(5);
 
         mockMvc.perform(get("/squares/count"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("5"));
     }
-}
\ No newline at end of file
+
+    // ------------------------------------------------------------
+    // 3. GET /squares/stream
+    @Test
+    void streamSquares_writesNdjson() throws Exception {
+        SquareDTO square = new SquareDTO(
+                List.of(
+                        new SquarePointDTO(0, 0),
+                        new SquarePointDTO(0, 1),
+                        new SquarePointDTO(1, 0),
+                        new SquarePointDTO(1, 1)
+                )
+        );
+
+        doAnswer(invocation -> {
+            Consumer<SquareDTO> consumer = invocation.getArgument(2);
+            consumer.accept(square);
+            consumer.accept(square);
+            return null;
+        }).when(squareService).streamSquares(eq(Datasets.DEFAULT), eq(SquareFilter.NONE), any());
+
+        MvcResult result = mockMvc.perform(get("/squares/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"points":[{"x":0,"y":0},{"x":0,"y":1},{"x":1,"y":0},{"x":1,"y":1}]}
+                        {"points":[{"x":0,"y":0},{"x":0,"y":1},{"x":1,"y":0},{"x":1,"y":1}]}
+                        """));
+    }
+
+    // ------------------------------------------------------------
+    // 4. GET /squares/region
+    @Test
+    void getSquaresInRegion_returnsList() throws Exception {
+        SquareDTO square = new SquareDTO(
+                List.of(
+                        new SquarePointDTO(0, 0),
+                        new SquarePointDTO(0, 1),
+                        new SquarePointDTO(1, 0),
+                        new SquarePointDTO(1, 1)
+                )
+        );
+
+        when(squareService.findSquaresInRegion(Datasets.DEFAULT, new Region(0, 5, 0, 5), SquareFilter.NONE)).thenReturn(List.of(square));
+
+        mockMvc.perform(get("/squares/region")
+                        .param("minX", "0")
+                        .param("maxX", "5")
+                        .param("minY", "0")
+                        .param("maxY", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].points[3].x").value(1));
+    }
+
+    // ------------------------------------------------------------
+    // 5. GET /datasets/{dataset}/squares/count
+    @Test
+    void getSquareCount_forNamedDataset() throws Exception {
+        when(squareService.countSquares("team-a", SquareFilter.NONE)).thenReturn(3);
+
+        mockMvc.perform(get("/datasets/team-a/squares/count"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+    }
+
+    // ------------------------------------------------------------
+    // 6. GET /squares/cache
+    @Test
+    void getCacheStats_returnsStats() throws Exception {
+        when(squareService.cacheStats()).thenReturn(new CacheStatsDTO(4, 1, 0, 1, 176, 1024));
+
+        mockMvc.perform(get("/squares/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits").value(4))
+                .andExpect(jsonPath("$.misses").value(1));
+    }
+
+    // ------------------------------------------------------------
+    // 7. GET /squares WITH FILTER
+    @Test
+    void getSquares_bindsFilter() throws Exception {
+        SquareDTO square = new SquareDTO(
+                List.of(
+                        new SquarePointDTO(0, 0),
+                        new SquarePointDTO(0, 2),
+                        new SquarePointDTO(2, 0),
+                        new SquarePointDTO(2, 2)
+                )
+        );
+
+        when(squareService.findSquares(Datasets.DEFAULT, new SquareFilter(true, 2, 5))).thenReturn(List.of(square));
+
+        mockMvc.perform(get("/squares")
+                        .param("axisAligned", "true")
+                        .param("minSide", "2")
+                        .param("maxSide", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].points[1].y").value(2));
+    }
+
+    // ------------------------------------------------------------
+    // 8. GET /squares IN BINARY
+    @Test
+    void getSquares_writesBinaryWhenAccepted() throws Exception {
+        long[] keys = { SquareKey.pack(0, 0), SquareKey.pack(0, 2) };
+        when(squareService.squareKeys(Datasets.DEFAULT, SquareFilter.NONE)).thenReturn(keys);
+
+        MvcResult result = mockMvc.perform(get("/squares").accept(BinaryCodec.MEDIA_TYPE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryCodec.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(body).hasSize(BinaryCodec.SQUARE_BYTES);
+        assertThat(BinaryCodec.readSquares(new ByteArrayInputStream(body))).containsExactly(new SquareDTO(
+                List.of(
+                        new SquarePointDTO(0, 0),
+                        new SquarePointDTO(0, 2),
+                        new SquarePointDTO(2, 0),
+                        new SquarePointDTO(2, 2)
+                )
+        ));
+    }
+
+    // ------------------------------------------------------------
+    // 9. UNCHANGED DATASET ANSWERS 304 WITHOUT DETECTION
+    @Test
+    void getSquares_returnsNotModifiedForCurrentEtag() throws Exception {
+        when(versions.etag(Datasets.DEFAULT, "json")).thenReturn("W/\"e-3-json\"");
+        when(squareService.findSquares(Datasets.DEFAULT, SquareFilter.NONE)).thenReturn(List.of());
+
+        mockMvc.perform(get("/squares"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"e-3-json\""));
+
+        mockMvc.perform(get("/squares").header("If-None-Match", "W/\"e-3-json\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/squares").header("If-None-Match", "W/\"e-2-json\""))
+                .andExpect(status().isOk());
+
+        verify(squareService, times(2)).findSquares(Datasets.DEFAULT, SquareFilter.NONE);
+    }
+
+    // ------------------------------------------------------------
+    // 10. GET /squares/changes
+    @Test
+    void getSquareChanges_returnsChangesSinceVersion() throws Exception {
+        SquareDTO square = new SquareDTO(List.of(
+                new SquarePointDTO(0, 0),
+                new SquarePointDTO(0, 1),
+                new SquarePointDTO(1, 0),
+                new SquarePointDTO(1, 1)
+        ));
+        when(squareService.findChanges(Datasets.DEFAULT, 5L, new SquareFilter(true, null, null)))
+                .thenReturn(new SquareChangesDTO(7, false, List.of(square), List.of()));
+
+        mockMvc.perform(get("/squares/changes").param("since", "5").param("axisAligned", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(7))
+                .andExpect(jsonPath("$.reset").value(false))
+                .andExpect(jsonPath("$.added.length()").value(1))
+                .andExpect(jsonPath("$.added[0].points[3].x").value(1))
+                .andExpect(jsonPath("$.removed").isEmpty());
+    }
+}
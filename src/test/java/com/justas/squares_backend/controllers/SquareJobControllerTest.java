@@ -0,0 +1,67 @@
+package com.justas.squares_backend.controllers;
+
+import com.justas.squares_backend.dto.SquareJobDTO;
+import com.justas.squares_backend.exceptions.JobNotFoundException;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.services.SquareJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(SquareJobController.class)
+class SquareJobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private SquareJobService jobService;
+
+    // ------------------------------------------------------------
+    // 1. POST /squares/jobs
+    @Test
+    void startJob_returnsAccepted() throws Exception {
+        when(jobService.submit(Datasets.DEFAULT, new Region(0, 10, null, null), SquareFilter.NONE))
+                .thenReturn(new SquareJobDTO("42", Datasets.DEFAULT, "QUEUED", 0, 0, 0, null, null));
+
+        mockMvc.perform(post("/squares/jobs")
+                        .param("minX", "0")
+                        .param("maxX", "10"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("42"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    // ------------------------------------------------------------
+    // 2. GET /datasets/{dataset}/squares/jobs/{id}
+    @Test
+    void getJob_reportsProgress() throws Exception {
+        when(jobService.getJob("team-a", "42"))
+                .thenReturn(new SquareJobDTO("42", "team-a", "RUNNING", 250, 1000, 1200, null, null));
+
+        mockMvc.perform(get("/datasets/team-a/squares/jobs/42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pairsScanned").value(250))
+                .andExpect(jsonPath("$.pairsTotal").value(1000));
+    }
+
+    // ------------------------------------------------------------
+    // 3. UNKNOWN JOB
+    @Test
+    void getJob_returnsNotFound() throws Exception {
+        when(jobService.getJob(Datasets.DEFAULT, "missing")).thenThrow(new JobNotFoundException("missing"));
+
+        mockMvc.perform(get("/squares/jobs/missing"))
+                .andExpect(status().isNotFound());
+    }
+}
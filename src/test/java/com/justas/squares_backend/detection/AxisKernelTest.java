@@ -0,0 +1,110 @@
+package com.justas.squares_backend.detection;
+
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AxisKernelTest {
+
+    private static final SquareFilter AXIS_ALIGNED = new SquareFilter(true, null, null);
+
+    private static Set<SquareKey> keys(LongList squares) {
+        Set<SquareKey> keys = new TreeSet<>();
+        for (int i = 0; i < squares.size(); i += 2) {
+            keys.add(new SquareKey(squares.get(i), squares.get(i + 1)));
+        }
+        return keys;
+    }
+
+    private static void assertSameAsFilteredDiagonal(int[] xs, int[] ys, SquareFilter filter) {
+        LongList axis = new AxisKernel(xs, ys, filter).detect();
+        Set<SquareKey> expected = keys(new SquareKernel(xs, ys).detect());
+        expected.removeIf(square -> !filter.accepts(square));
+
+        assertThat(axis.size()).isEqualTo(2 * expected.size());
+        assertThat(keys(axis)).isEqualTo(expected);
+    }
+
+    // ------------------------------------------------------------
+    // 1. SAME SQUARES AS THE DIAGONAL SCAN FILTERED AFTERWARDS
+    @Test
+    void matchesFilteredDiagonalScan() {
+        Random random = new Random(9);
+        for (int round = 0; round < 30; round++) {
+            int n = 50 + random.nextInt(400);
+            int spread = 3 + random.nextInt(20);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(spread) - spread / 2;
+                ys[i] = random.nextInt(spread);
+            }
+
+            assertSameAsFilteredDiagonal(xs, ys, AXIS_ALIGNED);
+            assertSameAsFilteredDiagonal(xs, ys, new SquareFilter(true, 2, 5));
+        }
+    }
+
+    // ------------------------------------------------------------
+    // 2. SQUARE IS REPORTED FROM ITS BOTTOM-LEFT CORNER
+    @Test
+    void reportsAnchorAndAdjacentCorner() {
+        LongList squares = new AxisKernel(
+                new int[] { 3, 1, 3, 1, 2 },
+                new int[] { 4, 4, 2, 2, 3 },
+                AXIS_ALIGNED
+        ).detect();
+
+        assertThat(squares.size()).isEqualTo(2);
+        assertThat(squares.get(0)).isEqualTo(pack(1, 2));
+        assertThat(squares.get(1)).isEqualTo(pack(1, 4));
+    }
+
+    // ------------------------------------------------------------
+    // 3. CORNERS NEAR THE INT RANGE DO NOT OVERFLOW
+    @Test
+    void handlesExtremeCoordinates() {
+        int max = Integer.MAX_VALUE;
+        int min = Integer.MIN_VALUE;
+
+        assertSameAsFilteredDiagonal(
+                new int[] { max - 1, max, max - 1, max, min, min + 1, min, min + 1, min, max },
+                new int[] { max - 1, max - 1, max, max, min, min, min + 1, min + 1, max, max },
+                AXIS_ALIGNED
+        );
+    }
+
+    // ------------------------------------------------------------
+    // 4. EVERY PAIR IS ACCOUNTED FOR IN THE PROGRESS
+    @Test
+    void accountsForEveryPair() {
+        int n = 8 * 200;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i % 8;
+            ys[i] = i / 8;
+        }
+
+        AxisKernel kernel = new AxisKernel(xs, ys, new SquareFilter(true, 2, 4));
+        ScanProgress progress = new ScanProgress();
+        progress.start(kernel.size());
+        LongList squares = new LongList();
+        kernel.scan(0, kernel.rows(), squares, progress);
+
+        long pairs = (long) n * (n - 1) / 2;
+        assertThat(squares.size() / 2).isEqualTo(6 * 198 + 5 * 197 + 4 * 196);
+        assertThat(progress.scanned()).isEqualTo(pairs);
+        assertThat(progress.outOfRange() + progress.filtered() + progress.notAnchor()
+                + progress.missingCorner() + squares.size() / 2)
+                .isEqualTo(pairs);
+    }
+}
@@ -0,0 +1,92 @@
+package com.justas.squares_backend.detection;
+
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GridKernelTest {
+
+    private static Set<SquareKey> keys(LongList squares) {
+        Set<SquareKey> keys = new TreeSet<>();
+        for (int i = 0; i < squares.size(); i += 2) {
+            keys.add(new SquareKey(squares.get(i), squares.get(i + 1)));
+        }
+        return keys;
+    }
+
+    private static void assertSameAsDiagonal(int[] xs, int[] ys) {
+        LongList grid = new GridKernel(xs, ys).detect();
+        LongList diagonal = new SquareKernel(xs, ys).detect();
+
+        assertThat(grid.size()).isEqualTo(diagonal.size());
+        assertThat(keys(grid)).isEqualTo(keys(diagonal));
+    }
+
+    // ------------------------------------------------------------
+    // 1. SAME SQUARES AS THE DIAGONAL SCAN ON RANDOM LAYOUTS
+    @Test
+    void matchesDiagonalScan() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20; round++) {
+            int n = 50 + random.nextInt(600);
+            int spread = 10 + random.nextInt(round % 2 == 0 ? 30 : 3000);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(spread) - spread / 2;
+                ys[i] = random.nextInt(spread / 4 + 1);
+            }
+
+            assertSameAsDiagonal(xs, ys);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // 2. EMPTY, TINY AND EXTREME INPUTS
+    @Test
+    void handlesEdgeCases() {
+        int max = Integer.MAX_VALUE;
+        int min = Integer.MIN_VALUE;
+
+        assertThat(new GridKernel(new int[0], new int[0]).detect().size()).isZero();
+        assertThat(new GridKernel(new int[] { 0, 1, 0, 1, 0 }, new int[] { 0, 0, 1, 1, 0 }).detect().size())
+                .isEqualTo(2);
+        assertSameAsDiagonal(
+                new int[] { max - 1, max, max - 1, max, min, min + 1, min, min + 1 },
+                new int[] { max - 1, max - 1, max, max, min, min, min + 1, min + 1 }
+        );
+    }
+
+    // ------------------------------------------------------------
+    // 3. PAIRS OF DISTANT CELLS ARE PRUNED, YET EVERY PAIR IS ACCOUNTED FOR
+    @Test
+    void prunesCellPairsThatCannotHoldSquares() {
+        // Two long parallel lines: no corner of a diagonal ever lands on a line
+        int n = 2000;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i % (n / 2);
+            ys[i] = i < n / 2 ? 0 : n;
+        }
+
+        ScanProgress progress = new ScanProgress();
+        GridKernel kernel = new GridKernel(xs, ys);
+        progress.start(kernel.size());
+        LongList squares = new LongList();
+        kernel.scan(0, kernel.rows(), squares, progress);
+
+        long pairs = (long) n * (n - 1) / 2;
+        assertThat(squares.size()).isZero();
+        assertThat(progress.scanned()).isEqualTo(pairs);
+        assertThat(progress.oddParity() + progress.outOfRange() + progress.emptyRegion()
+                + progress.notAnchor() + progress.missingCorner()).isEqualTo(pairs);
+        assertThat(progress.emptyRegion()).isGreaterThan(pairs / 3);
+    }
+}
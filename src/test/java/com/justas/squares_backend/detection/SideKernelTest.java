@@ -0,0 +1,101 @@
+package com.justas.squares_backend.detection;
+
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SideKernelTest {
+
+    private static Set<SquareKey> keys(LongList squares) {
+        Set<SquareKey> keys = new TreeSet<>();
+        for (int i = 0; i < squares.size(); i += 2) {
+            keys.add(new SquareKey(squares.get(i), squares.get(i + 1)));
+        }
+        return keys;
+    }
+
+    private static void assertSameAsDiagonal(int[] xs, int[] ys) {
+        LongList side = new SideKernel(xs, ys).detect();
+        LongList diagonal = new SquareKernel(xs, ys).detect();
+
+        assertThat(side.size()).isEqualTo(diagonal.size());
+        assertThat(keys(side)).isEqualTo(keys(diagonal));
+    }
+
+    // ------------------------------------------------------------
+    // 1. SAME SQUARES AS THE DIAGONAL SCAN ON RANDOM LAYOUTS
+    @Test
+    void matchesDiagonalScan() {
+        Random random = new Random(5);
+        for (int round = 0; round < 30; round++) {
+            int n = 50 + random.nextInt(400);
+            int spread = 3 + random.nextInt(20);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(spread) - spread / 2;
+                ys[i] = random.nextInt(spread) * (round % 3 == 0 ? 3 : 1);
+            }
+
+            assertSameAsDiagonal(xs, ys);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // 2. ROTATED SQUARE IS REPORTED FROM ITS ANCHOR SIDE
+    @Test
+    void reportsAnchorAndAdjacentCorner() {
+        LongList squares = new SideKernel(
+                new int[] { 0, 2, 0, -2 },
+                new int[] { 2, 0, -2, 0 }
+        ).detect();
+
+        assertThat(squares.size()).isEqualTo(2);
+        assertThat(squares.get(0)).isEqualTo(pack(-2, 0));
+        assertThat(squares.get(1)).isEqualTo(pack(0, 2));
+    }
+
+    // ------------------------------------------------------------
+    // 3. CORNERS NEAR THE INT RANGE DO NOT OVERFLOW
+    @Test
+    void handlesExtremeCoordinates() {
+        int max = Integer.MAX_VALUE;
+        int min = Integer.MIN_VALUE;
+
+        assertSameAsDiagonal(
+                new int[] { max - 1, max, max - 1, max, min, min + 1, min, min + 1, min, max },
+                new int[] { max - 1, max - 1, max, max, min, min, min + 1, min + 1, max, min }
+        );
+    }
+
+    // ------------------------------------------------------------
+    // 4. EVERY PAIR IS ACCOUNTED FOR IN THE PROGRESS
+    @Test
+    void accountsForEveryPair() {
+        int n = 8 * 200;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i % 8;
+            ys[i] = i / 8;
+        }
+
+        SideKernel kernel = new SideKernel(xs, ys);
+        ScanProgress progress = new ScanProgress();
+        progress.start(kernel.size());
+        LongList squares = new LongList();
+        kernel.scan(0, kernel.rows(), squares, progress);
+
+        long pairs = (long) n * (n - 1) / 2;
+        assertThat(progress.scanned()).isEqualTo(pairs);
+        assertThat(progress.emptyRegion() + progress.notAnchor() + progress.missingCorner() + squares.size() / 2)
+                .isEqualTo(pairs);
+    }
+}
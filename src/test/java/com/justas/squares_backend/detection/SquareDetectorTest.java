@@ -0,0 +1,184 @@
+package com.justas.squares_backend.detection;
+
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SquareDetectorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SquareDetector parallel = new SquareDetector(4, 10, SquareEngine.DIAGONAL, registry);
+
+    @AfterEach
+    void shutdown() {
+        parallel.shutdown();
+    }
+
+    private static Set<SquareKey> keys(LongList squares) {
+        Set<SquareKey> keys = new TreeSet<>();
+        for (int i = 0; i < squares.size(); i += 2) {
+            keys.add(new SquareKey(squares.get(i), squares.get(i + 1)));
+        }
+        return keys;
+    }
+
+    // ------------------------------------------------------------
+    // 1. PARALLEL RESULT MATCHES THE SEQUENTIAL KERNEL EXACTLY
+    @Test
+    void parallelMatchesSequential() {
+        Random random = new Random(7);
+        int n = 1500;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextInt(60);
+            ys[i] = random.nextInt(60);
+        }
+
+        long[] sequential = new SquareKernel(xs, ys).detect().toArray();
+        long[] result = parallel.detect(xs, ys).toArray();
+
+        assertThat(result).isNotEmpty();
+        assertThat(result).containsExactly(sequential);
+    }
+
+    // ------------------------------------------------------------
+    // 2. SMALL INPUTS STAY SEQUENTIAL AND STILL WORK
+    @Test
+    void smallInputBelowThreshold() {
+        long[] result = parallel.detect(new int[] { 0, 1, 0, 1 }, new int[] { 0, 0, 1, 1 }).toArray();
+
+        assertThat(result).hasSize(2);
+    }
+
+    // ------------------------------------------------------------
+    // 3. EVERY ENGINE FINDS THE SAME SQUARES
+    @Test
+    void enginesAgree() {
+        Random random = new Random(13);
+        int n = 1200;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextInt(50);
+            ys[i] = random.nextInt(50);
+        }
+
+        Set<SquareKey> expected = keys(new SquareKernel(xs, ys).detect());
+        assertThat(expected).isNotEmpty();
+
+        for (SquareEngine engine : SquareEngine.values()) {
+            SquareDetector detector = new SquareDetector(4, 10, engine, new SimpleMeterRegistry());
+            try {
+                LongList found = detector.detect(xs, ys);
+                assertThat(found.size()).as(engine.name()).isEqualTo(2 * expected.size());
+                assertThat(keys(found)).as(engine.name()).isEqualTo(expected);
+            } finally {
+                detector.shutdown();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // 4. METRICS ACCOUNT FOR EVERY PAIR OF THE SCAN
+    @Test
+    void metricsAccountForEveryPair() {
+        Random random = new Random(11);
+        int n = 800;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        // Distinct points, so the pair count is exactly n(n-1)/2
+        for (int i = 0; i < n; i++) {
+            xs[i] = i % 40;
+            ys[i] = (i / 40) * 2 + random.nextInt(2);
+        }
+
+        int squares = parallel.detect(xs, ys).size() / 2;
+
+        double pairs = registry.get("squares.detection.pairs").counter().count();
+        double rejected = registry.get("squares.detection.candidates.rejected").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+
+        // Every diagonal is either rejected for one reason or reports its square
+        assertThat(pairs).isEqualTo((double) n * (n - 1) / 2);
+        assertThat(rejected + squares).isEqualTo(pairs);
+        assertThat(registry.get("squares.detection.candidates.rejected").tag("reason", "not_anchor")
+                .counter().count()).isGreaterThanOrEqualTo(squares);
+        assertThat(registry.get("squares.detection.scan").timer().count()).isEqualTo(1);
+    }
+
+    // ------------------------------------------------------------
+    // 5. FILTERED SCANS MATCH THE UNFILTERED RESULT FILTERED AFTERWARDS
+    @Test
+    void filteredEnginesAgree() {
+        Random random = new Random(17);
+        int n = 1000;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextInt(45);
+            ys[i] = random.nextInt(45);
+        }
+
+        Set<SquareKey> all = keys(new SquareKernel(xs, ys).detect());
+        SquareFilter[] filters = {
+                new SquareFilter(true, null, null),
+                new SquareFilter(true, 3, 10),
+                new SquareFilter(null, 5, null),
+                new SquareFilter(null, null, 4),
+                new SquareFilter(false, 2, 7)
+        };
+
+        for (SquareEngine engine : SquareEngine.values()) {
+            SquareDetector detector = new SquareDetector(4, 10, engine, new SimpleMeterRegistry());
+            try {
+                for (SquareFilter filter : filters) {
+                    Set<SquareKey> expected = new TreeSet<>(all);
+                    expected.removeIf(square -> !filter.accepts(square));
+                    assertThat(expected).isNotEmpty();
+
+                    LongList found = detector.detect(detector.prepare(xs, ys, filter));
+                    assertThat(found.size()).as(engine + " " + filter).isEqualTo(2 * expected.size());
+                    assertThat(keys(found)).as(engine + " " + filter).isEqualTo(expected);
+                }
+            } finally {
+                detector.shutdown();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // 6. FILTERED PAIRS ARE COUNTED AS REJECTED
+    @Test
+    void metricsCountFilteredPairs() {
+        int n = 30 * 30;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i % 30;
+            ys[i] = i / 30;
+        }
+
+        int squares = parallel.detect(parallel.prepare(xs, ys, new SquareFilter(true, null, 2))).size() / 2;
+
+        double pairs = registry.get("squares.detection.pairs").counter().count();
+        double rejected = registry.get("squares.detection.candidates.rejected").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+
+        assertThat(squares).isEqualTo(29 * 29 + 28 * 28);
+        assertThat(rejected + squares).isEqualTo(pairs);
+        assertThat(registry.get("squares.detection.candidates.rejected").tag("reason", "filtered")
+                .counter().count()).isPositive();
+    }
+}
@@ -0,0 +1,96 @@
+package com.justas.squares_backend.detection;
+
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.SquareKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SquareKernelTest {
+
+    private LongList detect(int[] xs, int[] ys) {
+        return new SquareKernel(xs, ys).detect();
+    }
+
+    // ------------------------------------------------------------
+    // 1. EACH SQUARE IS REPORTED ONCE WITH ITS CANONICAL KEY
+    @Test
+    void reportsEachSquareOnce() {
+        LongList squares = detect(
+                new int[] { 0, 2, 0, -2 },
+                new int[] { 2, 0, -2, 0 }
+        );
+
+        assertThat(squares.size()).isEqualTo(2);
+        assertThat(new SquareKey(squares.get(0), squares.get(1)))
+                .isEqualTo(SquareKey.of(pack(0, 2), pack(2, 0), pack(0, -2), pack(-2, 0)));
+    }
+
+    // ------------------------------------------------------------
+    // 2. GRID CONTAINS AXIS-ALIGNED AND ROTATED SQUARES
+    @Test
+    void countsAllSquaresInGrid() {
+        int[] xs = new int[9];
+        int[] ys = new int[9];
+        for (int i = 0; i < 9; i++) {
+            xs[i] = i % 3;
+            ys[i] = i / 3;
+        }
+
+        // 4 unit squares, 1 of side 2 and 1 rotated through the edge midpoints
+        assertThat(detect(xs, ys).size() / 2).isEqualTo(6);
+    }
+
+    // ------------------------------------------------------------
+    // 3. ODD PARITY DIAGONALS AND DUPLICATES PRODUCE NOTHING
+    @Test
+    void ignoresNonIntegralCornersAndDuplicates() {
+        LongList squares = detect(
+                new int[] { 0, 1, 1, 0, 0 },
+                new int[] { 0, 0, 2, 2, 0 }
+        );
+
+        assertThat(squares.isEmpty()).isTrue();
+    }
+
+    // ------------------------------------------------------------
+    // 4. CORNERS NEAR THE INT RANGE DO NOT OVERFLOW
+    @Test
+    void handlesExtremeCoordinates() {
+        int max = Integer.MAX_VALUE;
+        LongList squares = detect(
+                new int[] { max - 1, max, max - 1, max, Integer.MIN_VALUE },
+                new int[] { max - 1, max - 1, max, max, Integer.MIN_VALUE }
+        );
+
+        assertThat(squares.size()).isEqualTo(2);
+    }
+
+    // ------------------------------------------------------------
+    // 5. PROGRESS COUNTS EVERY PAIR AND CANCELLATION STOPS THE SCAN
+    @Test
+    void reportsProgressAndStopsWhenCancelled() {
+        int[] xs = { 0, 0, 1, 1, 5 };
+        int[] ys = { 0, 1, 0, 1, 5 };
+
+        ScanProgress progress = new ScanProgress();
+        SquareDetector detector = new SquareDetector(1, 0);
+        LongList squares = detector.detect(new SquareKernel(xs, ys), progress);
+        detector.shutdown();
+
+        assertThat(squares.size()).isEqualTo(2);
+        assertThat(progress.total()).isEqualTo(10);
+        assertThat(progress.scanned()).isEqualTo(10);
+
+        ScanProgress cancelled = new ScanProgress();
+        cancelled.cancel();
+
+        assertThatThrownBy(() -> new SquareKernel(xs, ys).scan(0, 5, new LongList(), cancelled))
+                .isInstanceOf(CancellationException.class);
+        assertThat(cancelled.scanned()).isZero();
+    }
+}
@@ -0,0 +1,106 @@
+package com.justas.squares_backend.helpers;
+
+import com.justas.squares_backend.dto.PointInputDTO;
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.dto.SquarePointDTO;
+import com.justas.squares_backend.mappers.SquareMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryCodecTest {
+
+    // Hands out at most a few bytes per read, like a slow network stream
+    private static InputStream trickle(byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+    }
+
+    // ------------------------------------------------------------
+    // 1. POINTS ARE LITTLE-ENDIAN INT32 PAIRS
+    @Test
+    void encodesPointsAsLittleEndianPairs() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryCodec.writePoints(List.of(new PointInputDTO(1, -2)), output);
+
+        assertThat(output.toByteArray()).containsExactly(
+                1, 0, 0, 0,
+                -2, -1, -1, -1
+        );
+    }
+
+    // ------------------------------------------------------------
+    // 2. DECODED POINTS MATCH THE ENCODED ONES
+    @Test
+    void decodesPointsAcrossPartialReads() throws IOException {
+        Random random = new Random(7);
+        List<PointInputDTO> points = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            points.add(new PointInputDTO(random.nextInt(), random.nextInt()));
+        }
+        points.add(new PointInputDTO(Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryCodec.writePoints(points, output);
+
+        assertThat(output.size()).isEqualTo(points.size() * BinaryCodec.POINT_BYTES);
+        assertThat(BinaryCodec.readPoints(trickle(output.toByteArray()))).isEqualTo(points);
+        assertThat(BinaryCodec.readPoints(new ByteArrayInputStream(new byte[0]))).isEmpty();
+    }
+
+    // ------------------------------------------------------------
+    // 3. TRUNCATED INPUT IS REJECTED
+    @Test
+    void rejectsPartialRecords() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryCodec.writePoints(List.of(new PointInputDTO(1, 2), new PointInputDTO(3, 4)), output);
+        byte[] truncated = Arrays.copyOf(output.toByteArray(), 12);
+
+        assertThatThrownBy(() -> BinaryCodec.readPoints(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BinaryCodec.readSquares(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ------------------------------------------------------------
+    // 4. SQUARES DECODE TO THE SAME DTOS AS THE JSON PATH
+    @Test
+    void encodesSquaresLikeTheirDtos() throws IOException {
+        long[] keys = {
+                pack(0, 0), pack(0, 2),
+                pack(-3, 5), pack(-2, 7)
+        };
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryCodec.writeSquares(keys, output);
+
+        List<SquareDTO> squares = BinaryCodec.readSquares(trickle(output.toByteArray()));
+        assertThat(output.size()).isEqualTo(2 * BinaryCodec.SQUARE_BYTES);
+        assertThat(squares).containsExactly(
+                SquareMapper.toDTO(new SquareKey(keys[0], keys[1])),
+                SquareMapper.toDTO(new SquareKey(keys[2], keys[3]))
+        );
+        assertThat(squares.get(0).points()).containsExactly(
+                new SquarePointDTO(0, 0),
+                new SquarePointDTO(0, 2),
+                new SquarePointDTO(2, 0),
+                new SquarePointDTO(2, 2)
+        );
+    }
+}
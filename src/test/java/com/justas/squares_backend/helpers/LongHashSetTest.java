@@ -0,0 +1,49 @@
+package com.justas.squares_backend.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    // ------------------------------------------------------------
+    // 1. ZERO IS A REGULAR VALUE
+    @Test
+    void storesZero() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.add(0L)).isTrue();
+        assertThat(set.add(0L)).isFalse();
+        assertThat(set.contains(0L)).isTrue();
+        assertThat(set.toArray()).containsExactly(0L);
+        assertThat(set.remove(0L)).isTrue();
+        assertThat(set.isEmpty()).isTrue();
+    }
+
+    // ------------------------------------------------------------
+    // 2. BEHAVES LIKE A HASHSET UNDER MIXED ADD AND REMOVE
+    @Test
+    void matchesJavaHashSet() {
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long value = SquareKey.pack(random.nextInt(200) - 100, random.nextInt(200) - 100);
+            if (random.nextBoolean()) {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long value : expected) {
+            assertThat(set.contains(value)).isTrue();
+        }
+    }
+}
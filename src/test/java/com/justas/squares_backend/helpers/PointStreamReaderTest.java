@@ -0,0 +1,107 @@
+package com.justas.squares_backend.helpers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.justas.squares_backend.dto.PointInputDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PointStreamReaderTest {
+
+    private final PointStreamReader reader = new PointStreamReader(new JsonFactory());
+
+    private long read(String body, PointStreamReader.Format format, int chunkSize, List<List<PointInputDTO>> chunks)
+            throws IOException {
+        return reader.read(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                format, chunkSize, chunk -> chunks.add(List.copyOf(chunk)));
+    }
+
+    // ------------------------------------------------------------
+    // 1. NDJSON IS SPLIT INTO FIXED-SIZE CHUNKS
+    @Test
+    void readsNdjsonInChunks() throws IOException {
+        List<List<PointInputDTO>> chunks = new ArrayList<>();
+
+        long malformed = read("""
+                {"x":1,"y":2}
+                {"y":4,"x":3}
+
+                {"x":5,"y":6,"label":"ignored"}
+                """, PointStreamReader.Format.NDJSON, 2, chunks);
+
+        assertThat(malformed).isZero();
+        assertThat(chunks).containsExactly(
+                List.of(new PointInputDTO(1, 2), new PointInputDTO(3, 4)),
+                List.of(new PointInputDTO(5, 6))
+        );
+    }
+
+    // ------------------------------------------------------------
+    // 2. MALFORMED NDJSON RECORDS ARE COUNTED AND SKIPPED
+    @Test
+    void countsMalformedNdjson() throws IOException {
+        List<List<PointInputDTO>> chunks = new ArrayList<>();
+
+        long malformed = read("""
+                {"x":1}
+                {"x":"a","y":2}
+                {"x":1,"y":2
+                {"x":99999999999,"y":2}
+                [1,2]
+                {"x":7,"y":8}
+                """, PointStreamReader.Format.NDJSON, 10, chunks);
+
+        assertThat(malformed).isEqualTo(5);
+        assertThat(chunks).containsExactly(List.of(new PointInputDTO(7, 8)));
+    }
+
+    // ------------------------------------------------------------
+    // 3. CSV WITH HEADER
+    @Test
+    void readsCsvWithHeader() throws IOException {
+        List<List<PointInputDTO>> chunks = new ArrayList<>();
+
+        long malformed = read("""
+                x,y
+                1,2
+                -3, 4
+                oops
+                5,6,7
+                """, PointStreamReader.Format.CSV, 10, chunks);
+
+        assertThat(malformed).isEqualTo(2);
+        assertThat(chunks).containsExactly(List.of(new PointInputDTO(1, 2), new PointInputDTO(-3, 4)));
+    }
+
+    // ------------------------------------------------------------
+    // 4. FORMAT FROM CONTENT TYPE
+    @Test
+    void detectsFormatFromContentType() {
+        assertThat(PointStreamReader.Format.fromContentType("text/csv; charset=UTF-8"))
+                .isEqualTo(PointStreamReader.Format.CSV);
+        assertThat(PointStreamReader.Format.fromContentType("application/x-ndjson"))
+                .isEqualTo(PointStreamReader.Format.NDJSON);
+    }
+
+    // ------------------------------------------------------------
+    // 5. UPPER-CASE CONTENT TYPE UNDER THE TURKISH LOCALE
+    @Test
+    void detectsFormatIndependentOfDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertThat(PointStreamReader.Format.fromContentType("TEXT/CSV"))
+                    .isEqualTo(PointStreamReader.Format.CSV);
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.justas.squares_backend.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SquareFilterTest {
+
+    // ------------------------------------------------------------
+    // 1. SIDE BOUNDS ARE INCLUSIVE AND USE THE EUCLIDEAN LENGTH
+    @Test
+    void boundsSideLengthInclusively() {
+        SquareFilter filter = new SquareFilter(null, 5, 5);
+
+        assertThat(filter.accepts(3, 4)).isTrue();
+        assertThat(filter.accepts(0, 5)).isTrue();
+        assertThat(filter.accepts(4, 4)).isFalse();
+        assertThat(filter.accepts(4, 3)).isTrue();
+        assertThat(filter.accepts(1, 5)).isFalse();
+    }
+
+    // ------------------------------------------------------------
+    // 2. AXIS-ALIGNED ONLY ACCEPTS SIDES ALONG AN AXIS
+    @Test
+    void axisAlignedRejectsTiltedSides() {
+        SquareFilter filter = new SquareFilter(true, null, null);
+
+        assertThat(filter.accepts(0, 7)).isTrue();
+        assertThat(filter.accepts(-7, 0)).isTrue();
+        assertThat(filter.accepts(1, 7)).isFalse();
+        assertThat(filter.accepts(new SquareKey(pack(0, 0), pack(0, 3)))).isTrue();
+        assertThat(filter.accepts(new SquareKey(pack(-1, 0), pack(0, 1)))).isFalse();
+    }
+
+    // ------------------------------------------------------------
+    // 3. SIDES SPANNING THE WHOLE INT RANGE DO NOT OVERFLOW
+    @Test
+    void handlesExtremeSides() {
+        long span = (long) Integer.MAX_VALUE - Integer.MIN_VALUE;
+
+        assertThat(new SquareFilter(null, null, Integer.MAX_VALUE).accepts(span, span)).isFalse();
+        assertThat(new SquareFilter(null, Integer.MAX_VALUE, null).accepts(span, span)).isTrue();
+        assertThat(new SquareFilter(null, Integer.MAX_VALUE, null).accepts(1, 1)).isFalse();
+    }
+
+    // ------------------------------------------------------------
+    // 4. NEGATIVE OR INVERTED BOUNDS ARE INVALID
+    @Test
+    void validatesBounds() {
+        assertThat(SquareFilter.NONE.isValid()).isTrue();
+        assertThat(SquareFilter.NONE.isUnfiltered()).isTrue();
+        assertThat(new SquareFilter(false, null, null).isUnfiltered()).isTrue();
+        assertThat(new SquareFilter(null, 3, 2).isValid()).isFalse();
+        assertThat(new SquareFilter(null, -1, null).isValid()).isFalse();
+        assertThat(new SquareFilter(null, 2, 2).isValid()).isTrue();
+    }
+}
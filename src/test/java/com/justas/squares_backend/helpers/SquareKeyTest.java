@@ -0,0 +1,49 @@
+package com.justas.squares_backend.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SquareKeyTest {
+
+    // ------------------------------------------------------------
+    // 1. PACKING KEEPS LEXICOGRAPHIC ORDER
+    @Test
+    void packPreservesLexicographicOrder() {
+        assertThat(pack(-1, 5)).isLessThan(pack(0, -5));
+        assertThat(pack(0, -5)).isLessThan(pack(0, 3));
+        assertThat(pack(Integer.MIN_VALUE, Integer.MAX_VALUE)).isLessThan(pack(Integer.MAX_VALUE, Integer.MIN_VALUE));
+
+        long packed = pack(-7, Integer.MIN_VALUE);
+        assertThat(SquareKey.unpackX(packed)).isEqualTo(-7);
+        assertThat(SquareKey.unpackY(packed)).isEqualTo(Integer.MIN_VALUE);
+    }
+
+    // ------------------------------------------------------------
+    // 2. SAME SQUARE, ANY CORNER ORDER, SAME KEY
+    @Test
+    void keyIsIndependentOfCornerOrder() {
+        long a = pack(0, 2);
+        long b = pack(2, 0);
+        long c = pack(0, -2);
+        long d = pack(-2, 0);
+
+        SquareKey key = SquareKey.of(a, b, c, d);
+
+        assertThat(SquareKey.of(c, a, d, b)).isEqualTo(key);
+        assertThat(key.anchor()).isEqualTo(d);
+        assertThat(key.adjacent()).isEqualTo(a);
+    }
+
+    // ------------------------------------------------------------
+    // 3. CORNERS ARE RESTORED IN SORTED ORDER
+    @Test
+    void cornersAreRestoredSorted() {
+        SquareKey key = SquareKey.of(pack(1, 3), pack(-1, 2), pack(2, 1), pack(0, 0));
+
+        assertThat(key.corners()).containsExactly(
+                pack(-1, 2), pack(0, 0), pack(1, 3), pack(2, 1)
+        );
+    }
+}
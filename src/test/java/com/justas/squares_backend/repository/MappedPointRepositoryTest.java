@@ -0,0 +1,224 @@
+package com.justas.squares_backend.repository;
+
+import com.justas.squares_backend.entities.Point;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedPointRepositoryTest {
+
+    private static final String SET = "default";
+
+    @TempDir
+    Path directory;
+
+    private MappedPointRepository repository;
+
+    @BeforeEach
+    void setup() {
+        repository = new MappedPointRepository(directory.toString());
+    }
+
+    @AfterEach
+    void close() {
+        repository.close();
+    }
+
+    private List<Point> grid(String dataset, int width, int height) {
+        List<Point> points = new ArrayList<>();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                points.add(new Point(dataset, x, y));
+            }
+        }
+        return points;
+    }
+
+    // ------------------------------------------------------------
+    // 1. SAVED POINTS GET IDS AND CAN BE LOOKED UP
+    @Test
+    void savesAndFindsPoints() {
+        Point saved = repository.saveAndFlush(new Point(SET, 3, -4));
+
+        assertThat(saved.getId()).isNotNull();
+        assertThat(repository.findByDatasetAndXAndY(SET, 3, -4)).get()
+                .extracting(Point::getId)
+                .isEqualTo(saved.getId());
+        assertThat(repository.findById(saved.getId())).isPresent();
+        assertThat(repository.findByDatasetAndXAndY(SET, 4, 3)).isEmpty();
+        assertThat(repository.findByDatasetAndXAndY("other", 3, -4)).isEmpty();
+    }
+
+    // ------------------------------------------------------------
+    // 2. DUPLICATES REJECT THE WHOLE BATCH
+    @Test
+    void rejectsDuplicatesLikeTheUniqueConstraint() {
+        repository.saveAndFlush(new Point(SET, 1, 1));
+
+        assertThatThrownBy(() -> repository.saveAndFlush(new Point(SET, 1, 1)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> repository.saveAllAndFlush(List.of(new Point(SET, 2, 2), new Point(SET, 2, 2))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(repository.count()).isEqualTo(1);
+        assertThat(repository.save(new Point("other", 1, 1)).getId()).isNotNull();
+        assertThat(repository.findDatasets()).containsExactly(SET, "other");
+    }
+
+    // ------------------------------------------------------------
+    // 3. GROWS PAST ITS INITIAL SIZE AND DELETES
+    @Test
+    void growsAndDeletes() {
+        List<Point> saved = repository.saveAllAndFlush(grid(SET, 200, 100));
+        for (int i = 0; i < saved.size(); i += 2) {
+            repository.delete(saved.get(i));
+        }
+
+        assertThat(repository.count()).isEqualTo(10_000);
+        assertThat(repository.findByDataset(SET)).hasSize(10_000);
+        assertThat(repository.findByDatasetAndXAndY(SET, 0, 0)).isEmpty();
+        assertThat(repository.findByDatasetAndXAndY(SET, 0, 1)).isPresent();
+        assertThat(repository.streamByDataset(SET)).hasSize(10_000);
+    }
+
+    // ------------------------------------------------------------
+    // 4. BOX QUERIES PAGE BY NUMBER AND BY ID CURSOR
+    @Test
+    void pagesThroughBox() {
+        repository.saveAllAndFlush(grid(SET, 20, 20));
+
+        List<Point> box = repository.findByDatasetAndXBetweenAndYBetween(SET, 5, 9, 5, 9);
+        assertThat(box).hasSize(25);
+
+        List<Point> page = repository.findByDatasetAndXBetweenAndYBetween(
+                SET, 5, 9, 5, 9, PageRequest.of(1, 10, Sort.by("id")));
+        assertThat(page).extracting(Point::getId)
+                .containsExactlyElementsOf(box.subList(10, 20).stream().map(Point::getId).toList());
+
+        List<Point> after = repository.findByDatasetAndXBetweenAndYBetweenAndIdGreaterThan(
+                SET, 5, 9, 5, 9, box.get(19).getId(), PageRequest.of(0, 10, Sort.by("id")));
+        assertThat(after).extracting(Point::getId)
+                .containsExactlyElementsOf(box.subList(20, 25).stream().map(Point::getId).toList());
+    }
+
+    // ------------------------------------------------------------
+    // 5. POINTS SURVIVE A RESTART
+    @Test
+    void reopensStoredPoints() {
+        List<Point> saved = repository.saveAllAndFlush(grid(SET, 50, 50));
+        repository.delete(saved.get(0));
+        repository.save(new Point("other", 7, 7));
+        repository.close();
+
+        repository = new MappedPointRepository(directory.toString());
+
+        assertThat(repository.count()).isEqualTo(2500);
+        assertThat(repository.findByDataset(SET)).hasSize(2499);
+        assertThat(repository.findByDatasetAndXAndY(SET, 0, 0)).isEmpty();
+        assertThat(repository.findByDatasetAndXAndY("other", 7, 7)).isPresent();
+        assertThat(repository.save(new Point(SET, 0, 0)).getId()).isGreaterThan(saved.get(2499).getId());
+    }
+
+    // ------------------------------------------------------------
+    // 6. BULK DELETES BY COORDINATES AND BY BOX
+    @Test
+    void deletesByCoordinatesAndBox() {
+        repository.saveAllAndFlush(grid(SET, 10, 10));
+
+        assertThat(repository.deleteByCoordinates(SET, new int[] { 0, 0, 50 }, new int[] { 0, 0, 50 })).isEqualTo(1);
+        assertThat(repository.deleteInBox(SET, 0, 4, 0, 9)).isEqualTo(49);
+        assertThat(repository.deleteInBox("other", 0, 4, 0, 9)).isZero();
+
+        assertThat(repository.count()).isEqualTo(50);
+        assertThat(repository.findByDatasetAndXBetweenAndYBetween(SET, 0, 4, 0, 9)).isEmpty();
+        assertThat(repository.findByDatasetAndXAndY(SET, 5, 0)).isPresent();
+    }
+
+    // ------------------------------------------------------------
+    // 7. SCANS STAY CONSISTENT WHILE THE FILE GROWS AND DELETES
+    @Test
+    void scansWhileWriting() throws Exception {
+        repository.saveAllAndFlush(grid(SET, 100, 10));
+
+        Thread writer = new Thread(() -> {
+            for (int row = 10; row < 200; row++) {
+                List<Point> added = new ArrayList<>();
+                for (int x = 0; x < 100; x++) {
+                    added.add(new Point(SET, x, row));
+                }
+                repository.saveAllAndFlush(added);
+                repository.deleteInBox(SET, 0, 99, row - 10, row - 10);
+            }
+        });
+        writer.start();
+
+        // Rows are added and deleted 100 points at a time, so no scan can see a partial row
+        while (writer.isAlive()) {
+            List<Point> points = repository.findByDatasetAndXBetweenAndYBetween(SET, 0, 99, 0, 199);
+            assertThat(points.size() % 100).isZero();
+            assertThat(repository.findByDataset(SET).size() % 100).isZero();
+        }
+        writer.join();
+
+        assertThat(repository.count()).isEqualTo(1_000);
+        assertThat(repository.findByDatasetAndXBetweenAndYBetween(SET, 0, 99, 190, 199)).hasSize(1_000);
+    }
+
+    // ------------------------------------------------------------
+    // 8. BOX QUERIES PAGE IN ANY ORDER
+    @Test
+    void pagesThroughBoxInOtherOrders() {
+        repository.saveAllAndFlush(grid(SET, 20, 20));
+
+        List<Point> page = repository.findByDatasetAndXBetweenAndYBetween(
+                SET, 5, 9, 5, 9, PageRequest.of(1, 5, Sort.by(Sort.Direction.DESC, "y").and(Sort.by("x"))));
+
+        assertThat(page).extracting(Point::getY).containsOnly(8);
+        assertThat(page).extracting(Point::getX).containsExactly(5, 6, 7, 8, 9);
+        assertThatThrownBy(() -> repository.findByDatasetAndXBetweenAndYBetween(
+                SET, 5, 9, 5, 9, PageRequest.of(0, 5, Sort.by("z"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ------------------------------------------------------------
+    // 9. SAVING A STORED POINT REPLACES IT
+    @Test
+    void savingStoredPointReplacesIt() {
+        List<Point> saved = repository.saveAllAndFlush(grid(SET, 2, 1));
+        Point first = saved.get(0);
+        Point second = saved.get(1);
+        long firstId = first.getId();
+
+        assertThat(repository.save(second).getId()).isEqualTo(second.getId());
+
+        first.setX(5);
+        Point moved = repository.saveAndFlush(first);
+        assertThat(moved.getId()).isGreaterThan(firstId);
+        assertThat(repository.findById(firstId)).isEmpty();
+        assertThat(repository.findByDatasetAndXAndY(SET, 5, 0)).isPresent();
+        assertThat(repository.count()).isEqualTo(2);
+
+        // Points may swap coordinates, but not take those of a point that stays
+        first.setX(second.getX());
+        second.setX(5);
+        repository.saveAllAndFlush(List.of(first, second));
+        assertThat(repository.findByDatasetAndXAndY(SET, 1, 0).get().getId()).isEqualTo(first.getId());
+
+        Point copy = new Point(SET, 1, 0);
+        copy.setId(second.getId());
+        assertThatThrownBy(() -> repository.save(copy))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(repository.count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,57 @@
+package com.justas.squares_backend.services;
+
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.repository.PointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class DatasetVersionsTest {
+
+    private PointRepository repository;
+    private SquareIndexRegistry squareIndexes;
+    private DatasetVersions versions;
+
+    @BeforeEach
+    void setup() {
+        repository = Mockito.mock(PointRepository.class);
+        squareIndexes = new SquareIndexRegistry(repository, new SquareDetector(1, 0));
+        versions = new DatasetVersions(squareIndexes);
+    }
+
+    // ------------------------------------------------------------
+    // 1. TAGS ARE READ WITHOUT LOADING THE INDEX
+    @Test
+    void etagDoesNotLoadIndex() {
+        String etag = versions.etag("a", "json");
+
+        assertThat(etag).isEqualTo("W/\"" + versions.version("a") + "-json\"");
+        assertThat(versions.etag("a", "json")).isEqualTo(etag);
+        assertThat(versions.etag("a", "int32")).isNotEqualTo(etag);
+        verify(repository, never()).findByDataset(any());
+    }
+
+    // ------------------------------------------------------------
+    // 2. MUTATIONS CHANGE THE TAG OF THEIR DATASET ONLY
+    @Test
+    void mutationChangesEtag() {
+        long first = versions.version("a");
+        String before = versions.etag("a", "json");
+        String other = versions.etag("b", "json");
+
+        squareIndexes.forDataset("a").pointAdded(1, 1);
+
+        assertThat(versions.etag("a", "json")).isNotEqualTo(before);
+        assertThat(versions.version("a")).isEqualTo(first + 1);
+        assertThat(versions.etag("b", "json")).isEqualTo(other);
+
+        // Adding a point that is already indexed changes nothing
+        squareIndexes.forDataset("a").pointAdded(1, 1);
+        assertThat(versions.version("a")).isEqualTo(first + 1);
+    }
+}
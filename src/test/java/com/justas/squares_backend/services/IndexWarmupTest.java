@@ -0,0 +1,79 @@
+package com.justas.squares_backend.services;
+
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.repository.PointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexWarmupTest {
+
+    private PointRepository repository;
+    private SquareIndexRegistry squareIndexes;
+
+    @BeforeEach
+    void setup() {
+        repository = Mockito.mock(PointRepository.class);
+        squareIndexes = new SquareIndexRegistry(repository, new SquareDetector(1, 0));
+    }
+
+    // ------------------------------------------------------------
+    // 1. NOT READY UNTIL EVERY DATASET IS LOADED
+    // ------------------------------------------------------------
+    @Test
+    void reportsOutOfServiceUntilWarmedUp() {
+        when(repository.findDatasets()).thenReturn(List.of("a", "b"));
+        when(repository.findByDataset("a")).thenReturn(List.of(
+                new Point("a", 0, 0), new Point("a", 1, 0), new Point("a", 1, 1), new Point("a", 0, 1)
+        ));
+        when(repository.findByDataset("b")).thenReturn(List.of(new Point("b", 5, 5)));
+
+        IndexWarmup warmup = new IndexWarmup(repository, squareIndexes, true);
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        warmup.warmUp();
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmup.health().getDetails()).containsEntry("datasets", 2);
+
+        // Already loaded, so reads do not touch the repository again
+        assertThat(squareIndexes.forDataset("a").countSquares()).isEqualTo(1);
+        assertThat(squareIndexes.forDataset("b").countSquares()).isZero();
+        verify(repository, times(1)).findByDataset("a");
+        verify(repository, times(1)).findByDataset("b");
+    }
+
+    // ------------------------------------------------------------
+    // 2. FAILED WARM-UP REPORTS DOWN
+    // ------------------------------------------------------------
+    @Test
+    void reportsDownWhenLoadingFails() {
+        when(repository.findDatasets()).thenThrow(new IllegalStateException("Point index missing"));
+
+        IndexWarmup warmup = new IndexWarmup(repository, squareIndexes, true);
+        warmup.warmUp();
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+
+    // ------------------------------------------------------------
+    // 3. DISABLED WARM-UP IS READY RIGHT AWAY
+    // ------------------------------------------------------------
+    @Test
+    void disabledWarmupIsUpWithoutLoading() {
+        IndexWarmup warmup = new IndexWarmup(repository, squareIndexes, false);
+        warmup.start();
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        verify(repository, times(0)).findDatasets();
+    }
+}
@@ -0,0 +1,99 @@
+package com.justas.squares_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.justas.squares_backend.dto.ImportSummaryDTO;
+import com.justas.squares_backend.dto.PointInputDTO;
+import com.justas.squares_backend.exceptions.DuplicatePointException;
+import com.justas.squares_backend.helpers.Datasets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PointImportServiceTest {
+
+    private static final String SET = Datasets.DEFAULT;
+
+    private PointService pointService;
+    private PointImportService importService;
+
+    @BeforeEach
+    void setup() {
+        pointService = Mockito.mock(PointService.class);
+        importService = new PointImportService(pointService, new ObjectMapper(), 2);
+    }
+
+    private List<PointInputDTO> points(int count) {
+        List<PointInputDTO> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new PointInputDTO(i, i));
+        }
+        return points;
+    }
+
+    // ------------------------------------------------------------
+    // 1. NEW POINTS ARE IMPORTED CHUNK BY CHUNK
+    @Test
+    void importNew_importsInChunksAndCountsSkipped() {
+        List<PointInputDTO> points = points(5);
+        when(pointService.importChunk(eq(SET), anyList())).thenReturn(2, 0, 1);
+
+        ImportSummaryDTO summary = importService.importNew(SET, points);
+
+        assertThat(summary.imported()).isEqualTo(3);
+        assertThat(summary.rejected()).isEqualTo(2);
+        verify(pointService).importChunk(SET, points.subList(0, 2));
+        verify(pointService).importChunk(SET, points.subList(2, 4));
+        verify(pointService).importChunk(SET, points.subList(4, 5));
+    }
+
+    // ------------------------------------------------------------
+    // 2. EMPTY LIST IMPORTS NOTHING
+    @Test
+    void importNew_emptyListImportsNothing() {
+        ImportSummaryDTO summary = importService.importNew(SET, List.of());
+
+        assertThat(summary.imported()).isZero();
+        assertThat(summary.rejected()).isZero();
+        verify(pointService, times(0)).importChunk(eq(SET), anyList());
+    }
+
+    // ------------------------------------------------------------
+    // 3. A CHUNK RACING WITH A CONCURRENT INSERT IS RETRIED AGAINST THE STORE
+    @Test
+    void importNew_retriesChunkThatCollidedWithConcurrentInsert() {
+        List<PointInputDTO> points = points(2);
+        when(pointService.importChunk(SET, points))
+                .thenThrow(new DuplicatePointException("stored concurrently by another request"));
+        when(pointService.importChunkCheckingStore(SET, points)).thenReturn(1);
+
+        ImportSummaryDTO summary = importService.importNew(SET, points);
+
+        assertThat(summary.imported()).isEqualTo(1);
+        assertThat(summary.rejected()).isEqualTo(1);
+        verify(pointService).importChunkCheckingStore(SET, points);
+    }
+
+    // ------------------------------------------------------------
+    // 4. A CHUNK THAT KEEPS COLLIDING IS REPORTED AS A CONFLICT
+    @Test
+    void importNew_givesUpAfterRepeatedCollisions() {
+        List<PointInputDTO> points = points(2);
+        DuplicatePointException conflict = new DuplicatePointException("stored concurrently by another request");
+        when(pointService.importChunk(SET, points)).thenThrow(conflict);
+        when(pointService.importChunkCheckingStore(SET, points)).thenThrow(conflict);
+
+        assertThatThrownBy(() -> importService.importNew(SET, points)).isSameAs(conflict);
+        verify(pointService, times(PointImportService.CHUNK_ATTEMPTS - 1)).importChunkCheckingStore(SET, points);
+    }
+}
@@ -1,13 +1,23 @@
 package com.justas.squares_backend.services;
 
+import com.justas.squares_backend.dto.DeleteSummaryDTO;
 import com.justas.squares_backend.dto.PointInputDTO;
 import com.justas.squares_backend.dto.PointOutputDTO;
 import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.exceptions.DuplicatePointException;
 import com.justas.squares_backend.exceptions.PointNotFoundException;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.Region;
 import com.justas.squares_backend.repository.PointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,13 +27,23 @@ import static org.mockito.Mockito.*;
 
 class PointServiceTest {
 
+    private static final String SET = Datasets.DEFAULT;
+
     private PointRepository repository;
+    private SquareIndex squareIndex;
+    private SquareResultCache resultCache;
+    private SimpleMeterRegistry registry;
     private PointService pointService;
 
     @BeforeEach
     void setup() {
         repository = Mockito.mock(PointRepository.class);
-        pointService = new PointService(repository);
+        squareIndex = Mockito.mock(SquareIndex.class);
+        SquareIndexRegistry squareIndexes = Mockito.mock(SquareIndexRegistry.class);
+        when(squareIndexes.forDataset(SET)).thenReturn(squareIndex);
+        resultCache = Mockito.mock(SquareResultCache.class);
+        registry = new SimpleMeterRegistry();
+        pointService = new PointService(repository, squareIndexes, resultCache, registry);
     }
 
     private PointInputDTO dto(int x, int y) {
@@ -41,15 +61,16 @@ class PointServiceTest {
         PointInputDTO input = dto(1, 2);
         Point saved = entity(1, 2);
 
-        when(repository.existsByXAndY(1, 2)).thenReturn(false);
-        when(repository.save(any(Point.class))).thenReturn(saved);
+        when(repository.saveAndFlush(any(Point.class))).thenReturn(saved);
 
-        PointOutputDTO result = pointService.addPoint(input);
+        PointOutputDTO result = pointService.addPoint(SET, input);
 
         assertThat(result.x()).isEqualTo(1);
         assertThat(result.y()).isEqualTo(2);
 
-        verify(repository).save(any(Point.class));
+        verify(repository).saveAndFlush(any(Point.class));
+        verify(squareIndex).pointAdded(1, 2);
+        verify(resultCache).invalidate(SET);
     }
 
     // ------------------------------------------------------------
@@ -58,11 +79,27 @@ class PointServiceTest {
     void addPoint_throwsExceptionWhenDuplicate() {
         PointInputDTO input = dto(1, 2);
 
-        when(repository.existsByXAndY(1, 2)).thenReturn(true);
+        when(repository.saveAndFlush(any(Point.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_point_dataset_x_y"));
 
-        assertThatThrownBy(() -> pointService.addPoint(input))
+        assertThatThrownBy(() -> pointService.addPoint(SET, input))
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("Duplicate point");
+
+        verifyNoInteractions(squareIndex, resultCache);
+    }
+
+    // ------------------------------------------------------------
+    // 2b. OTHER CONSTRAINT VIOLATIONS ARE NOT DUPLICATES
+    @Test
+    void addPoint_passesOnOtherConstraintViolations() {
+        DataIntegrityViolationException notNull =
+                new DataIntegrityViolationException("NULL not allowed for column \"DATASET\"");
+        when(repository.saveAndFlush(any(Point.class))).thenThrow(notNull);
+
+        assertThatThrownBy(() -> pointService.addPoint(SET, dto(1, 2))).isSameAs(notNull);
+
+        verifyNoInteractions(squareIndex, resultCache);
     }
 
     // ------------------------------------------------------------
@@ -72,14 +109,16 @@ class PointServiceTest {
         PointInputDTO input = dto(3, 4);
         Point existing = entity(3, 4);
 
-        when(repository.findByXAndY(3, 4)).thenReturn(Optional.of(existing));
+        when(repository.findByDatasetAndXAndY(SET, 3, 4)).thenReturn(Optional.of(existing));
 
-        PointOutputDTO result = pointService.deletePointByCoordinates(input);
+        PointOutputDTO result = pointService.deletePointByCoordinates(SET, input);
 
         assertThat(result.x()).isEqualTo(3);
         assertThat(result.y()).isEqualTo(4);
 
         verify(repository).delete(existing);
+        verify(squareIndex).pointRemoved(3, 4);
+        verify(resultCache).invalidate(SET);
     }
 
     // ------------------------------------------------------------
@@ -88,26 +127,65 @@ class PointServiceTest {
     void deletePointByCoordinates_throwsWhenNotFound() {
         PointInputDTO input = dto(3, 4);
 
-        when(repository.findByXAndY(3, 4)).thenReturn(Optional.empty());
+        when(repository.findByDatasetAndXAndY(SET, 3, 4)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> pointService.deletePointByCoordinates(input))
+        assertThatThrownBy(() -> pointService.deletePointByCoordinates(SET, input))
                 .isInstanceOf(PointNotFoundException.class);
     }
 
+    // ------------------------------------------------------------
+    // 4b. BULK DELETE BY COORDINATES
+    @Test
+    void deletePoints_deletesInOneBatchAndUpdatesIndex() {
+        when(repository.deleteByCoordinates(eq(SET), any(int[].class), any(int[].class))).thenReturn(2);
+
+        DeleteSummaryDTO result = pointService.deletePoints(SET, List.of(dto(1, 2), dto(3, 4), dto(9, 9)));
+
+        assertThat(result.deleted()).isEqualTo(2);
+        verify(repository).deleteByCoordinates(SET, new int[] { 1, 3, 9 }, new int[] { 2, 4, 9 });
+        verify(squareIndex).pointsRemoved(new int[] { 1, 3, 9 }, new int[] { 2, 4, 9 });
+        verify(resultCache).invalidate(SET);
+        verify(repository, never()).delete(any(Point.class));
+    }
+
+    // ------------------------------------------------------------
+    // 4c. DELETE BY BOUNDING BOX
+    @Test
+    void deletePointsInRegion_deletesWithOneStatement() {
+        Region region = new Region(0, 10, null, 5);
+        when(repository.deleteInBox(SET, 0, 10, Integer.MIN_VALUE, 5)).thenReturn(7);
+
+        assertThat(pointService.deletePointsInRegion(SET, region).deleted()).isEqualTo(7);
+        verify(squareIndex).pointsRemovedIn(region);
+        verify(resultCache).invalidate(SET);
+
+        // Nothing deleted leaves the index and cache alone
+        when(repository.deleteInBox(SET, 20, 30, 20, 30)).thenReturn(0);
+        pointService.deletePointsInRegion(SET, new Region(20, 30, 20, 30));
+        verify(squareIndex, times(1)).pointsRemovedIn(any(Region.class));
+
+        assertThatThrownBy(() -> pointService.deletePointsInRegion(SET, new Region(null, null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> pointService.deletePointsInRegion(SET, new Region(5, 1, null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     // ------------------------------------------------------------
     // 5. IMPORT LIST OF POINTS
     @Test
     void addPoints_savesAllWhenNoDuplicates() {
         List<PointInputDTO> list = List.of(dto(1, 1), dto(2, 2));
 
-        when(repository.existsByXAndY(anyInt(), anyInt())).thenReturn(false);
-        when(repository.save(any(Point.class)))
+        when(squareIndex.containsPoint(anyInt(), anyInt())).thenReturn(false);
+        when(repository.saveAllAndFlush(anyList()))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
-        List<PointOutputDTO> result = pointService.addPoints(list);
+        List<PointOutputDTO> result = pointService.addPoints(SET, list);
 
         assertThat(result).hasSize(2);
-        verify(repository, times(2)).save(any(Point.class));
+        verify(repository).saveAllAndFlush(anyList());
+        verify(repository, never()).save(any(Point.class));
+        verify(squareIndex).pointsAdded(new int[] { 1, 2 }, new int[] { 1, 2 });
     }
 
     // ------------------------------------------------------------
@@ -116,12 +194,90 @@ class PointServiceTest {
     void addPoints_throwsWhenDuplicatesExist() {
         List<PointInputDTO> list = List.of(dto(1, 1), dto(2, 2));
 
-        when(repository.existsByXAndY(1, 1)).thenReturn(false);
-        when(repository.existsByXAndY(2, 2)).thenReturn(true);
+        when(squareIndex.containsPoint(1, 1)).thenReturn(false);
+        when(squareIndex.containsPoint(2, 2)).thenReturn(true);
 
-        assertThatThrownBy(() -> pointService.addPoints(list))
+        assertThatThrownBy(() -> pointService.addPoints(SET, list))
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("Duplicate points");
+
+        verify(repository, never()).saveAllAndFlush(anyList());
+    }
+
+    // ------------------------------------------------------------
+    // 6b. IMPORT LIST WITH DUPLICATES INSIDE THE PAYLOAD
+    @Test
+    void addPoints_throwsWhenPayloadRepeatsPoint() {
+        List<PointInputDTO> list = List.of(dto(1, 1), dto(2, 2), dto(1, 1));
+
+        assertThatThrownBy(() -> pointService.addPoints(SET, list))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Duplicate points")
+                .hasMessageContaining("x=1, y=1");
+
+        verify(repository, never()).saveAllAndFlush(anyList());
+    }
+
+    // ------------------------------------------------------------
+    // 6c. STREAMED CHUNK SKIPS EXISTING AND REPEATED POINTS
+    @Test
+    void importChunk_skipsExistingAndRepeatedPoints() {
+        List<PointInputDTO> chunk = List.of(dto(1, 1), dto(2, 2), dto(1, 1), dto(3, 3));
+
+        when(squareIndex.containsPoint(2, 2)).thenReturn(true);
+        when(repository.saveAllAndFlush(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        int imported = pointService.importChunk(SET, chunk);
+
+        assertThat(imported).isEqualTo(2);
+        verify(squareIndex).pointsAdded(new int[] { 1, 3 }, new int[] { 1, 3 });
+    }
+
+    // ------------------------------------------------------------
+    // 6d. CONSTRAINT VIOLATION ON BATCH INSERT IS A DUPLICATE
+    @Test
+    void addPoints_translatesConstraintViolation() {
+        when(repository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_point_dataset_x_y"));
+
+        assertThatThrownBy(() -> pointService.addPoints(SET, List.of(dto(1, 1))))
+                .isInstanceOf(DuplicatePointException.class)
+                .hasMessageContaining("Duplicates not allowed");
+
+        verify(squareIndex, never()).pointsAdded(any(), any());
+    }
+
+    // ------------------------------------------------------------
+    // 6e. IMPORTS RECORD LATENCY AND BATCH SIZE PER MODE
+    @Test
+    void imports_recordLatencyAndBatchSize() {
+        when(repository.saveAllAndFlush(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        pointService.addPoints(SET, List.of(dto(1, 1), dto(2, 2), dto(3, 3)));
+        pointService.importChunk(SET, List.of(dto(4, 4)));
+
+        assertThat(registry.get("points.import").tag("mode", "batch").timer().count()).isEqualTo(1);
+        assertThat(registry.get("points.import.size").tag("mode", "batch").summary().totalAmount()).isEqualTo(3);
+        assertThat(registry.get("points.import").tag("mode", "stream").timer().count()).isEqualTo(1);
+        assertThat(registry.get("points.import.size").tag("mode", "stream").summary().totalAmount()).isEqualTo(1);
+    }
+
+    // ------------------------------------------------------------
+    // 6f. RETRIED CHUNK SKIPS POINTS THE STORE ALREADY HOLDS
+    @Test
+    void importChunkCheckingStore_skipsStoredPoints() {
+        when(repository.findByDatasetAndXBetweenAndYBetween(SET, 1, 2, 1, 2)).thenReturn(List.of(entity(2, 2)));
+        when(repository.saveAllAndFlush(anyList())).thenReturn(List.of(entity(1, 1)));
+
+        int imported = pointService.importChunkCheckingStore(SET, List.of(dto(1, 1), dto(2, 2), dto(1, 1)));
+
+        assertThat(imported).isEqualTo(1);
+        verify(repository).findByDatasetAndXBetweenAndYBetween(SET, 1, 2, 1, 2);
+        verify(repository, never()).findByDatasetAndXAndY(any(), anyInt(), anyInt());
+        verify(squareIndex, never()).containsPoint(anyInt(), anyInt());
+        verify(squareIndex).pointsAdded(new int[] { 1 }, new int[] { 1 });
     }
 
     // ------------------------------------------------------------
@@ -130,12 +286,102 @@ class PointServiceTest {
     void getAllPoints_returnsMappedPoints() {
         List<Point> entities = List.of(entity(5, 5), entity(7, 7));
 
-        when(repository.findAll()).thenReturn(entities);
+        when(repository.findByDataset(SET)).thenReturn(entities);
 
-        List<PointOutputDTO> result = pointService.getAllPoints();
+        List<PointOutputDTO> result = pointService.getAllPoints(SET);
 
         assertThat(result).hasSize(2);
         assertThat(result).extracting("x").containsExactly(5, 7);
         assertThat(result).extracting("y").containsExactly(5, 7);
     }
-}
\ No newline at end of file
+
+    // ------------------------------------------------------------
+    // 8. PAGE OF POINTS IN A BOUNDING BOX
+    @Test
+    void findPoints_returnsPageWithinRegion() {
+        when(repository.findByDatasetAndXBetweenAndYBetween(SET, 0, 10, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                PageRequest.of(2, 50, Sort.by("id"))))
+                .thenReturn(List.of(entity(1, 1), entity(2, 2)));
+
+        List<PointOutputDTO> result = pointService.findPoints(SET, new Region(0, 10, null, null), 2, 50, null);
+
+        assertThat(result).extracting("x").containsExactly(1, 2);
+    }
+
+    // ------------------------------------------------------------
+    // 9. CURSOR PAGINATION CONTINUES AFTER THE LAST ID
+    @Test
+    void findPoints_continuesAfterCursor() {
+        when(repository.findByDatasetAndXBetweenAndYBetweenAndIdGreaterThan(
+                SET, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                41L, PageRequest.of(0, PointService.DEFAULT_PAGE_SIZE, Sort.by("id"))))
+                .thenReturn(List.of(entity(9, 9)));
+
+        List<PointOutputDTO> result = pointService.findPoints(SET, new Region(null, null, null, null), null, null, 41L);
+
+        assertThat(result).hasSize(1);
+    }
+
+    // ------------------------------------------------------------
+    // 10. INVALID PAGE REQUESTS ARE REJECTED
+    @Test
+    void findPoints_rejectsInvalidRequests() {
+        Region all = new Region(null, null, null, null);
+
+        assertThatThrownBy(() -> pointService.findPoints(SET, all, 0, 0, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> pointService.findPoints(SET, all, 1, 10, 5L))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> pointService.findPoints(SET, new Region(3, 2, null, null), null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ------------------------------------------------------------
+    // 11. INDEX AND CACHE ARE UPDATED ONLY AFTER COMMIT
+    @Test
+    void mutationsReachIndexOnlyAfterCommit() {
+        when(repository.saveAllAndFlush(anyList())).thenReturn(List.of(entity(1, 1)));
+        when(repository.deleteByCoordinates(eq(SET), any(), any())).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            pointService.addPoints(SET, List.of(dto(1, 1)));
+            pointService.deletePoints(SET, List.of(dto(2, 2)));
+
+            verify(squareIndex, never()).pointsAdded(any(), any());
+            verify(squareIndex, never()).pointsRemoved(any(), any());
+            verifyNoInteractions(resultCache);
+
+            // A rollback never runs afterCommit, so the index would stay untouched
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+
+            verify(squareIndex).pointsAdded(new int[] { 1 }, new int[] { 1 });
+            verify(squareIndex).pointsRemoved(new int[] { 2 }, new int[] { 2 });
+            verify(resultCache, times(2)).invalidate(SET);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // 12. A WRITE-THROUGH REPOSITORY UPDATES THE INDEX RIGHT AWAY
+    @Test
+    void mutationsReachIndexRightAwayWhenRepositoryWritesThrough() {
+        when(repository.writesThrough()).thenReturn(true);
+        when(repository.deleteInBox(SET, 0, 5, 0, 5)).thenReturn(2);
+        Region box = new Region(0, 5, 0, 5);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            pointService.deletePointsInRegion(SET, box);
+
+            // The deletes stay even if the transaction rolls back, so the index must not wait for a commit
+            verify(squareIndex).pointsRemovedIn(box);
+            verify(resultCache).invalidate(SET);
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
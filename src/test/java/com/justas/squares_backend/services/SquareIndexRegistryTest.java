@@ -0,0 +1,62 @@
+package com.justas.squares_backend.services;
+
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.repository.PointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SquareIndexRegistryTest {
+
+    private PointRepository repository;
+    private SquareIndexRegistry squareIndexes;
+
+    @BeforeEach
+    void setup() {
+        repository = Mockito.mock(PointRepository.class);
+        squareIndexes = new SquareIndexRegistry(repository, new SquareDetector(1, 0), 100, 2);
+    }
+
+    // ------------------------------------------------------------
+    // 1. READS OF DATASETS WITHOUT POINTS CREATE NO INDEX
+    @Test
+    void readsOfUnknownDatasetsCreateNoIndex() {
+        when(repository.existsByDataset("stored")).thenReturn(true);
+
+        assertThat(squareIndexes.findDataset("unknown")).isEmpty();
+        assertThat(squareIndexes.version("unknown")).isEqualTo(squareIndexes.emptyVersion());
+        assertThat(squareIndexes.findDataset("stored")).containsSame(squareIndexes.forDataset("stored"));
+        verify(repository, never()).findByDataset(any());
+
+        // A write creates the index, starting where the empty dataset was
+        SquareIndex created = squareIndexes.forDataset("unknown");
+        assertThat(created.version()).isEqualTo(squareIndexes.emptyVersion());
+        assertThat(squareIndexes.findDataset("unknown")).containsSame(created);
+    }
+
+    // ------------------------------------------------------------
+    // 2. LEAST RECENTLY USED INDEXES ARE EVICTED, VERSIONS KEEP GROWING
+    @Test
+    void evictsLeastRecentlyUsedIndex() {
+        SquareIndex a = squareIndexes.forDataset("a");
+        a.advanceVersion();
+        squareIndexes.forDataset("b");
+        squareIndexes.forDataset("a");
+        squareIndexes.forDataset("c");
+
+        assertThat(squareIndexes.forDataset("a")).isSameAs(a);
+
+        squareIndexes.forDataset("d");
+        squareIndexes.forDataset("e");
+
+        SquareIndex recreated = squareIndexes.forDataset("a");
+        assertThat(recreated).isNotSameAs(a);
+        assertThat(recreated.version()).isGreaterThan(a.version());
+    }
+}
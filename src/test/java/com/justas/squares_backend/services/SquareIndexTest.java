@@ -0,0 +1,246 @@
+package com.justas.squares_backend.services;
+
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.dto.SquarePointDTO;
+import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import com.justas.squares_backend.repository.PointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SquareIndexTest {
+
+    private PointRepository repository;
+    private SquareIndex squareIndex;
+
+    @BeforeEach
+    void setup() {
+        repository = Mockito.mock(PointRepository.class);
+        squareIndex = new SquareIndex(Datasets.DEFAULT, repository, new SquareDetector(1, 0));
+    }
+
+    private Point p(int x, int y) {
+        return new Point(x, y);
+    }
+
+    // ------------------------------------------------------------
+    // 1. LOADS FROM REPOSITORY ONLY ONCE
+    @Test
+    void loadsPointsFromRepositoryOnce() {
+        when(repository.findByDataset(Datasets.DEFAULT)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1)
+        ));
+
+        assertThat(squareIndex.countSquares()).isEqualTo(1);
+        assertThat(squareIndex.getSquares()).hasSize(1);
+
+        verify(repository, times(1)).findByDataset(Datasets.DEFAULT);
+    }
+
+    // ------------------------------------------------------------
+    // 2. ADDING THE LAST CORNER CREATES THE SQUARE
+    @Test
+    void addingPointCompletesSquare() {
+        squareIndex.pointAdded(0, 0);
+        squareIndex.pointAdded(2, 0);
+        squareIndex.pointAdded(0, 2);
+
+        assertThat(squareIndex.countSquares()).isZero();
+
+        squareIndex.pointAdded(2, 2);
+
+        assertThat(squareIndex.getSquares()).hasSize(1);
+        assertThat(squareIndex.getSquares().get(0).points()).containsExactly(
+                new SquarePointDTO(0, 0),
+                new SquarePointDTO(0, 2),
+                new SquarePointDTO(2, 0),
+                new SquarePointDTO(2, 2)
+        );
+    }
+
+    // ------------------------------------------------------------
+    // 3. ROTATED SQUARE IS DETECTED INCREMENTALLY
+    @Test
+    void addingPointCompletesRotatedSquare() {
+        squareIndex.pointAdded(0, 2);
+        squareIndex.pointAdded(2, 0);
+        squareIndex.pointAdded(0, -2);
+        squareIndex.pointAdded(-2, 0);
+
+        assertThat(squareIndex.countSquares()).isEqualTo(1);
+    }
+
+    // ------------------------------------------------------------
+    // 4. REMOVING A CORNER REMOVES ONLY ITS SQUARES
+    @Test
+    void removingPointRemovesItsSquares() {
+        when(repository.findByDataset(Datasets.DEFAULT)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1),
+                p(0, 2), p(1, 2)
+        ));
+
+        assertThat(squareIndex.countSquares()).isEqualTo(2);
+
+        squareIndex.pointRemoved(0, 0);
+
+        assertThat(squareIndex.countSquares()).isEqualTo(1);
+        assertThat(squareIndex.getSquares().get(0).points()).contains(
+                new SquarePointDTO(0, 2),
+                new SquarePointDTO(1, 2)
+        );
+    }
+
+    // ------------------------------------------------------------
+    // 5. DUPLICATE MUTATIONS ARE IGNORED
+    @Test
+    void ignoresDuplicateAddAndUnknownRemove() {
+        squareIndex.pointAdded(0, 0);
+        squareIndex.pointAdded(0, 1);
+        squareIndex.pointAdded(1, 0);
+        squareIndex.pointAdded(1, 1);
+        squareIndex.pointAdded(1, 1);
+        squareIndex.pointRemoved(5, 5);
+
+        assertThat(squareIndex.countSquares()).isEqualTo(1);
+    }
+
+    // ------------------------------------------------------------
+    // 6. BATCH REMOVAL DROPS ONLY THE SQUARES OF REMOVED POINTS
+    @Test
+    void removingBatchDropsSquaresWithoutRescan() {
+        when(repository.findByDataset(Datasets.DEFAULT)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1),
+                p(0, 2), p(1, 2),
+                p(5, 5), p(5, 6), p(6, 5), p(6, 6)
+        ));
+
+        assertThat(squareIndex.countSquares()).isEqualTo(3);
+        long version = squareIndex.version();
+
+        squareIndex.pointsRemoved(new int[] { 0, 6, 9 }, new int[] { 0, 6, 9 });
+
+        assertThat(squareIndex.countSquares()).isEqualTo(1);
+        assertThat(squareIndex.containsPoint(0, 0)).isFalse();
+        assertThat(squareIndex.containsPoint(6, 5)).isTrue();
+        assertThat(squareIndex.version()).isGreaterThan(version);
+        verify(repository, times(1)).findByDataset(Datasets.DEFAULT);
+    }
+
+    // ------------------------------------------------------------
+    // 7. REMOVAL BY REGION
+    @Test
+    void removingRegionDropsItsPointsAndSquares() {
+        when(repository.findByDataset(Datasets.DEFAULT)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1),
+                p(5, 5), p(5, 6), p(6, 5), p(6, 6)
+        ));
+
+        squareIndex.pointsRemovedIn(new Region(4, null, 4, 5));
+
+        assertThat(squareIndex.countSquares()).isEqualTo(1);
+        assertThat(squareIndex.containsPoint(5, 5)).isFalse();
+        assertThat(squareIndex.containsPoint(5, 6)).isTrue();
+
+        long version = squareIndex.version();
+        squareIndex.pointsRemovedIn(new Region(100, 200, 100, 200));
+        assertThat(squareIndex.version()).isEqualTo(version);
+    }
+
+    // ------------------------------------------------------------
+    // 8. CHANGES SINCE A VERSION ARE NET CHANGES
+    @Test
+    void changesSinceVersionAreNet() {
+        squareIndex.pointAdded(0, 0);
+        squareIndex.pointAdded(0, 1);
+        squareIndex.pointAdded(1, 0);
+        long since = squareIndex.version();
+
+        squareIndex.pointAdded(1, 1);
+        squareIndex.pointAdded(5, 5);
+        squareIndex.pointAdded(5, 6);
+        squareIndex.pointAdded(6, 5);
+        squareIndex.pointAdded(6, 6);
+        squareIndex.pointRemoved(6, 6);
+
+        SquareChanges changes = squareIndex.changesSince(since, SquareFilter.NONE);
+
+        assertThat(changes.reset()).isFalse();
+        assertThat(changes.version()).isEqualTo(squareIndex.version());
+        assertThat(changes.added()).containsExactly(new SquareKey(SquareKey.pack(0, 0), SquareKey.pack(0, 1)));
+        assertThat(changes.removed()).isEmpty();
+
+        squareIndex.pointRemoved(0, 0);
+        SquareChanges later = squareIndex.changesSince(changes.version(), SquareFilter.NONE);
+        assertThat(later.added()).isEmpty();
+        assertThat(later.removed()).containsExactlyElementsOf(changes.added());
+
+        SquareChanges none = squareIndex.changesSince(later.version(), SquareFilter.NONE);
+        assertThat(none.added()).isEmpty();
+        assertThat(none.removed()).isEmpty();
+    }
+
+    // ------------------------------------------------------------
+    // 9. UNKNOWN OR EVICTED VERSIONS ANSWER WITH A RESET
+    @Test
+    void unknownVersionResets() {
+        squareIndex = new SquareIndex(Datasets.DEFAULT, repository, new SquareDetector(1, 0), 1000, 2);
+        when(repository.findByDataset(Datasets.DEFAULT)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1)
+        ));
+
+        assertThat(squareIndex.changesSince(null, SquareFilter.NONE).reset()).isTrue();
+        assertThat(squareIndex.changesSince(999L, SquareFilter.NONE).reset()).isTrue();
+        assertThat(squareIndex.changesSince(2000L, SquareFilter.NONE).reset()).isTrue();
+
+        long since = squareIndex.version();
+        squareIndex.pointsAdded(new int[] { 0, 1, 0, 1, 0, 1 }, new int[] { 2, 2, 3, 3, 4, 4 });
+
+        SquareChanges changes = squareIndex.changesSince(since, SquareFilter.NONE);
+        assertThat(changes.reset()).isTrue();
+        assertThat(changes.added()).hasSize(squareIndex.countSquares());
+        assertThat(changes.removed()).isEmpty();
+    }
+
+    // ------------------------------------------------------------
+    // 10. A WRITE THE LAZY LOAD ALREADY SAW STILL MOVES THE VERSION
+    @Test
+    void writeAlreadyLoadedReportsNoChange() {
+        when(repository.findByDataset(Datasets.DEFAULT)).thenReturn(List.of(p(1, 2)));
+        long version = squareIndex.version();
+
+        assertThat(squareIndex.pointAdded(1, 2)).isFalse();
+        assertThat(squareIndex.version()).isEqualTo(version);
+
+        squareIndex.advanceVersion();
+
+        assertThat(squareIndex.version()).isEqualTo(version + 1);
+        assertThat(squareIndex.changesSince(version, SquareFilter.NONE).added()).isEmpty();
+        assertThat(squareIndex.pointRemoved(1, 2)).isTrue();
+        assertThat(squareIndex.pointRemoved(1, 2)).isFalse();
+    }
+
+    // ------------------------------------------------------------
+    // 11. A LARGE BATCH OF KNOWN POINTS CHANGES NOTHING
+    @Test
+    void rescanOfKnownPointsReportsNoChange() {
+        when(repository.findByDataset(Datasets.DEFAULT)).thenReturn(List.of(p(0, 0), p(0, 1)));
+        assertThat(squareIndex.countSquares()).isZero();
+        long version = squareIndex.version();
+
+        assertThat(squareIndex.pointsAdded(new int[] { 0, 0, 0 }, new int[] { 0, 1, 0 })).isFalse();
+        assertThat(squareIndex.version()).isEqualTo(version);
+
+        assertThat(squareIndex.pointsAdded(new int[] { 0, 1, 1 }, new int[] { 0, 0, 1 })).isTrue();
+        assertThat(squareIndex.version()).isEqualTo(version + 1);
+        assertThat(squareIndex.changesSince(version, SquareFilter.NONE).added()).hasSize(1);
+    }
+}
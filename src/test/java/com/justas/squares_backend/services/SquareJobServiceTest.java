@@ -0,0 +1,149 @@
+package com.justas.squares_backend.services;
+
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.dto.SquareJobDTO;
+import com.justas.squares_backend.exceptions.JobNotFoundException;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.LongList;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
+import com.justas.squares_backend.helpers.SquareKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.justas.squares_backend.helpers.SquareKey.pack;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SquareJobServiceTest {
+
+    private static final String SET = Datasets.DEFAULT;
+    private static final Region ALL = new Region(null, null, null, null);
+
+    private SquareService squareService;
+    private ExecutorService executor;
+    private SquareJobService jobService;
+    private CountDownLatch blocker;
+
+    @BeforeEach
+    void setup() {
+        squareService = Mockito.mock(SquareService.class);
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        jobService = new SquareJobService(squareService, executor, 10);
+        blocker = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void shutdown() {
+        blocker.countDown();
+        executor.shutdownNow();
+    }
+
+    private void awaitJobs() throws InterruptedException {
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void occupyWorker() {
+        executor.submit(() -> {
+            blocker.await();
+            return null;
+        });
+    }
+
+    private LongList unitSquares(int count) {
+        LongList squares = new LongList();
+        for (int i = 0; i < count; i++) {
+            SquareKey key = SquareKey.of(pack(i, 0), pack(i, 1), pack(i + 1, 0), pack(i + 1, 1));
+            squares.add(key.anchor());
+            squares.add(key.adjacent());
+        }
+        return squares;
+    }
+
+    // ------------------------------------------------------------
+    // 1. COMPLETED JOB SERVES ITS RESULT IN PAGES
+    @Test
+    void completesJobAndPagesResult() throws InterruptedException {
+        when(squareService.detectSquares(eq(SET), eq(ALL), eq(SquareFilter.NONE), any())).thenReturn(unitSquares(3));
+
+        SquareJobDTO submitted = jobService.submit(SET, ALL);
+        awaitJobs();
+
+        SquareJobDTO job = jobService.getJob(SET, submitted.id());
+        assertThat(job.status()).isEqualTo("COMPLETED");
+        assertThat(job.squareCount()).isEqualTo(3);
+
+        List<SquareDTO> page = jobService.getResult(SET, submitted.id(), 1, 2);
+        assertThat(page).hasSize(1);
+        assertThat(page.get(0).points().get(0).x()).isEqualTo(2);
+    }
+
+    // ------------------------------------------------------------
+    // 2. QUEUED JOB CAN BE CANCELLED BEFORE IT RUNS
+    @Test
+    void cancelsQueuedJob() throws InterruptedException {
+        occupyWorker();
+        SquareJobDTO submitted = jobService.submit(SET, ALL);
+
+        assertThat(submitted.status()).isEqualTo("QUEUED");
+        assertThatThrownBy(() -> jobService.getResult(SET, submitted.id(), null, null))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(jobService.cancel(SET, submitted.id()).status()).isEqualTo("CANCELLED");
+
+        blocker.countDown();
+        awaitJobs();
+        verify(squareService, never()).detectSquares(any(), any(), any(), any());
+    }
+
+    // ------------------------------------------------------------
+    // 3. FULL QUEUE REJECTS NEW JOBS
+    @Test
+    void rejectsJobsWhenQueueIsFull() {
+        occupyWorker();
+        jobService.submit(SET, ALL);
+
+        assertThatThrownBy(() -> jobService.submit(SET, ALL))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Too many");
+    }
+
+    // ------------------------------------------------------------
+    // 4. JOBS ARE ONLY VISIBLE IN THEIR OWN DATASET
+    @Test
+    void hidesJobsOfOtherDatasets() {
+        occupyWorker();
+        SquareJobDTO submitted = jobService.submit(SET, ALL);
+
+        assertThatThrownBy(() -> jobService.getJob("other", submitted.id()))
+                .isInstanceOf(JobNotFoundException.class);
+        assertThatThrownBy(() -> jobService.getJob(SET, "missing"))
+                .isInstanceOf(JobNotFoundException.class);
+    }
+
+    // ------------------------------------------------------------
+    // 5. INVALID FILTER IS REJECTED BEFORE QUEUEING
+    @Test
+    void rejectsInvalidFilter() {
+        assertThatThrownBy(() -> jobService.submit(SET, ALL, new SquareFilter(null, 5, 2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid square filter");
+
+        verify(squareService, never()).detectSquares(any(), any(), any(), any());
+    }
+}
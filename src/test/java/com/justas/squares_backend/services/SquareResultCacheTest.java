@@ -0,0 +1,84 @@
+package com.justas.squares_backend.services;
+
+import com.justas.squares_backend.dto.SquareDTO;
+import com.justas.squares_backend.dto.SquarePointDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SquareResultCacheTest {
+
+    private static final long ENTRY = SquareResultCache.BYTES_PER_SQUARE;
+
+    private List<SquareDTO> squares(int count) {
+        SquareDTO square = new SquareDTO(List.of(
+                new SquarePointDTO(0, 0),
+                new SquarePointDTO(0, 1),
+                new SquarePointDTO(1, 0),
+                new SquarePointDTO(1, 1)
+        ));
+        return Collections.nCopies(count, square);
+    }
+
+    // ------------------------------------------------------------
+    // 1. HIT ONLY FOR THE SAME VERSION
+    @Test
+    void servesEntryOnlyForMatchingVersion() {
+        SquareResultCache cache = new SquareResultCache(10 * ENTRY);
+        List<SquareDTO> squares = squares(2);
+
+        cache.put("a", 3, squares);
+
+        assertThat(cache.get("a", 3)).isSameAs(squares);
+        assertThat(cache.get("a", 4)).isNull();
+        assertThat(cache.get("b", 3)).isNull();
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().misses()).isEqualTo(2);
+    }
+
+    // ------------------------------------------------------------
+    // 2. LEAST RECENTLY USED ENTRY IS EVICTED FIRST
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        SquareResultCache cache = new SquareResultCache(4 * ENTRY);
+
+        cache.put("a", 1, squares(2));
+        cache.put("b", 1, squares(2));
+        cache.get("a", 1);
+        cache.put("c", 1, squares(1));
+
+        assertThat(cache.get("a", 1)).isNotNull();
+        assertThat(cache.get("b", 1)).isNull();
+        assertThat(cache.get("c", 1)).isNotNull();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.stats().estimatedBytes()).isEqualTo(3 * ENTRY);
+    }
+
+    // ------------------------------------------------------------
+    // 3. OVERSIZED LISTS ARE NOT CACHED
+    @Test
+    void skipsListsLargerThanCache() {
+        SquareResultCache cache = new SquareResultCache(2 * ENTRY);
+
+        cache.put("a", 1, squares(3));
+
+        assertThat(cache.get("a", 1)).isNull();
+        assertThat(cache.stats().entries()).isZero();
+    }
+
+    // ------------------------------------------------------------
+    // 4. INVALIDATION RELEASES THE ENTRY
+    @Test
+    void invalidateRemovesEntry() {
+        SquareResultCache cache = new SquareResultCache(10 * ENTRY);
+
+        cache.put("a", 1, squares(2));
+        cache.invalidate("a");
+
+        assertThat(cache.get("a", 1)).isNull();
+        assertThat(cache.stats().estimatedBytes()).isZero();
+    }
+}
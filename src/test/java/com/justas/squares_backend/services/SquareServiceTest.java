@@ -1,9 +1,15 @@
 package com.justas.squares_backend.services;
 
+import com.justas.squares_backend.detection.SquareDetector;
+import com.justas.squares_backend.detection.SquareEngine;
 import com.justas.squares_backend.dto.SquareDTO;
 import com.justas.squares_backend.dto.SquarePointDTO;
 import com.justas.squares_backend.entities.Point;
+import com.justas.squares_backend.helpers.Datasets;
+import com.justas.squares_backend.helpers.Region;
+import com.justas.squares_backend.helpers.SquareFilter;
 import com.justas.squares_backend.repository.PointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -11,17 +17,30 @@ import org.mockito.Mockito;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class SquareServiceTest {
 
+    private static final String SET = Datasets.DEFAULT;
+
     private PointRepository repository;
+    private SquareIndexRegistry squareIndexes;
+    private SimpleMeterRegistry registry;
     private SquareService squareService;
 
     @BeforeEach
     void setup() {
         repository = Mockito.mock(PointRepository.class);
-        squareService = new SquareService(repository);
+        when(repository.existsByDataset(any())).thenReturn(true);
+        registry = new SimpleMeterRegistry();
+        SquareDetector detector = new SquareDetector(1, 0, SquareEngine.DIAGONAL, registry);
+        squareIndexes = new SquareIndexRegistry(repository, detector);
+        squareService = new SquareService(
+                squareIndexes, new SquareResultCache(1 << 20), repository, detector, registry);
     }
 
     private Point p(int x, int y) {
@@ -39,9 +58,9 @@ class SquareServiceTest {
                 p(1, 1)
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).hasSize(1);
 
@@ -65,9 +84,9 @@ class SquareServiceTest {
                 p(-2, 0)
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).hasSize(1);
     }
@@ -83,9 +102,9 @@ class SquareServiceTest {
                 p(3, 3), p(3, 5), p(5, 3), p(5, 5)
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).hasSize(2);
     }
@@ -100,9 +119,9 @@ class SquareServiceTest {
                 p(5, 7)
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).isEmpty();
     }
@@ -118,9 +137,9 @@ class SquareServiceTest {
                 p(4, 2) // rectangle 4x2
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).isEmpty();
     }
@@ -136,9 +155,9 @@ class SquareServiceTest {
                 p(2, -1) // rhombus, diagonals not equal
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).isEmpty();
     }
@@ -155,9 +174,9 @@ class SquareServiceTest {
                 p(1, 1) // duplicate
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).hasSize(1);
     }
@@ -173,11 +192,142 @@ class SquareServiceTest {
                 p(1, -1)
         );
 
-        when(repository.findAll()).thenReturn(points);
+        when(repository.findByDataset(SET)).thenReturn(points);
 
-        List<SquareDTO> squares = squareService.findSquares();
+        List<SquareDTO> squares = squareService.findSquares(SET);
 
         assertThat(squares).isEmpty();
     }
-}
 
+    // ------------------------------------------------------------
+    // 9. SQUARES WITHIN A REGION ONLY LOAD THE REGION'S POINTS
+    @Test
+    void findsSquaresInRegion() {
+        when(repository.findByDatasetAndXBetweenAndYBetween(SET, 0, 10, 0, 10)).thenReturn(List.of(
+                p(0, 0), p(0, 2), p(2, 0), p(2, 2)
+        ));
+
+        List<SquareDTO> squares = squareService.findSquaresInRegion(SET, new Region(0, 10, 0, 10));
+
+        assertThat(squares).hasSize(1);
+        assertThat(squares.get(0).points()).containsExactly(
+                new SquarePointDTO(0, 0),
+                new SquarePointDTO(0, 2),
+                new SquarePointDTO(2, 0),
+                new SquarePointDTO(2, 2)
+        );
+        verify(repository, never()).findByDataset(SET);
+    }
+
+    // ------------------------------------------------------------
+    // 10. INVERTED REGION IS REJECTED
+    @Test
+    void rejectsInvalidRegion() {
+        assertThatThrownBy(() -> squareService.findSquaresInRegion(SET, new Region(5, 1, null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ------------------------------------------------------------
+    // 11. DATASETS ARE INDEXED SEPARATELY
+    @Test
+    void keepsDatasetsApart() {
+        when(repository.findByDataset(SET)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1)
+        ));
+        when(repository.findByDataset("other")).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0)
+        ));
+
+        assertThat(squareService.countSquares(SET)).isEqualTo(1);
+        assertThat(squareService.countSquares("other")).isZero();
+    }
+
+    // ------------------------------------------------------------
+    // 12. REPEATED READS ARE SERVED FROM THE CACHE UNTIL A WRITE
+    @Test
+    void cachesSquaresUntilPointsChange() {
+        when(repository.findByDataset(SET)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1)
+        ));
+
+        List<SquareDTO> first = squareService.findSquares(SET);
+        List<SquareDTO> second = squareService.findSquares(SET);
+
+        assertThat(second).isSameAs(first);
+        assertThat(squareService.cacheStats().hits()).isEqualTo(1);
+
+        squareIndexes.forDataset(SET).pointAdded(0, 2);
+        squareIndexes.forDataset(SET).pointAdded(1, 2);
+
+        assertThat(squareService.findSquares(SET)).hasSize(2);
+        assertThat(squareService.cacheStats().misses()).isEqualTo(2);
+    }
+
+    // ------------------------------------------------------------
+    // 13. FIND DURATIONS ARE TIMED SEPARATELY FOR HITS AND MISSES
+    @Test
+    void timesFindSquaresByCacheOutcome() {
+        when(repository.findByDataset(SET)).thenReturn(List.of(
+                p(0, 0), p(0, 1), p(1, 0), p(1, 1)
+        ));
+
+        squareService.findSquares(SET);
+        squareService.findSquares(SET);
+        squareService.findSquares(SET);
+
+        assertThat(registry.get("squares.find").tag("cache", "miss").timer().count()).isEqualTo(1);
+        assertThat(registry.get("squares.find").tag("cache", "hit").timer().count()).isEqualTo(2);
+        assertThat(registry.get("squares.detection.pairs").counter().count()).isEqualTo(6);
+    }
+
+    // ------------------------------------------------------------
+    // 14. FILTERED READS SELECT FROM THE INDEX WITHOUT CACHING
+    @Test
+    void filtersSquaresByOrientationAndSide() {
+        // A 2x2 grid of unit squares plus the tilted square (1,0) (2,1) (1,2) (0,1)
+        when(repository.findByDataset(SET)).thenReturn(List.of(
+                p(0, 0), p(1, 0), p(2, 0),
+                p(0, 1), p(1, 1), p(2, 1),
+                p(0, 2), p(1, 2), p(2, 2)
+        ));
+
+        assertThat(squareService.findSquares(SET)).hasSize(6);
+        assertThat(squareService.findSquares(SET, new SquareFilter(true, null, null))).hasSize(5);
+        assertThat(squareService.findSquares(SET, new SquareFilter(null, null, 1))).hasSize(4);
+        assertThat(squareService.findSquares(SET, new SquareFilter(false, 2, null))).hasSize(1);
+        assertThat(squareService.countSquares(SET, new SquareFilter(true, 2, 2))).isEqualTo(1);
+
+        assertThat(squareService.cacheStats().misses()).isEqualTo(1);
+        assertThat(registry.get("squares.find").tag("cache", "bypass").timer().count()).isEqualTo(3);
+    }
+
+    // ------------------------------------------------------------
+    // 15. REGION SCANS APPLY THE FILTER DURING DETECTION
+    @Test
+    void filtersSquaresInRegion() {
+        when(repository.findByDatasetAndXBetweenAndYBetween(SET, 0, 10, 0, 10)).thenReturn(List.of(
+                p(0, 0), p(1, 0), p(2, 0),
+                p(0, 1), p(1, 1), p(2, 1),
+                p(0, 2), p(1, 2), p(2, 2)
+        ));
+        Region region = new Region(0, 10, 0, 10);
+
+        assertThat(squareService.findSquaresInRegion(SET, region, new SquareFilter(true, null, null))).hasSize(5);
+        assertThat(squareService.findSquaresInRegion(SET, region, new SquareFilter(null, 2, null)))
+                .hasSize(1)
+                .allSatisfy(square -> assertThat(square.points()).doesNotContain(new SquarePointDTO(1, 1)));
+        assertThat(registry.get("squares.detection.candidates.rejected").tag("reason", "filtered").counter().count())
+                .isPositive();
+    }
+
+    // ------------------------------------------------------------
+    // 16. INVALID FILTER IS REJECTED
+    @Test
+    void rejectsInvalidFilter() {
+        assertThatThrownBy(() -> squareService.findSquares(SET, new SquareFilter(null, 3, 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid square filter");
+        assertThatThrownBy(() -> squareService.countSquares(SET, new SquareFilter(null, -1, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}